@@ -51,6 +51,7 @@ public class Engine {
                 appLogic.input(window, scene, render, (float) frameDiffMillis);
                 render.render(window, scene);
                 window.update();
+                scene.onFrameRendered();
                 frames++;
                 lastFrameTime = now;
             }
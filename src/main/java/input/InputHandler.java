@@ -4,7 +4,7 @@ import scene.Camera;
 import scene.RayCast;
 import scene.Scene;
 import world.blocks.Block;
-import world.chunks.Chunk;
+import world.blocks.BlockRegistry;
 
 import org.joml.Vector2f;
 import org.joml.Vector3f;
@@ -14,9 +14,6 @@ import core.Window;
 
 import static org.lwjgl.glfw.GLFW.*;
 
-import java.util.ArrayList;
-import java.util.List;
-
 public class InputHandler {
     private static final float MOUSE_SENSITIVITY = 0.1f;
     private static final float MOVEMENT_SPEED = 0.005f;
@@ -172,57 +169,7 @@ public class InputHandler {
                 scene.getWorld().setBlock(blockPos.x, blockPos.y, blockPos.z, null);
                 scene.getPlayer().getInventory().addBlock(targetBlock.getType());
 
-                int chunkX = Math.floorDiv(blockPos.x, Chunk.WIDTH);
-                int chunkZ = Math.floorDiv(blockPos.z, Chunk.DEPTH);
-
-                boolean isOnBorderX = blockPos.x % Chunk.WIDTH == 0 || blockPos.x % Chunk.WIDTH == Chunk.WIDTH - 1;
-                boolean isOnBorderZ = blockPos.z % Chunk.DEPTH == 0 || blockPos.z % Chunk.DEPTH == Chunk.DEPTH - 1;
-
-                List<Chunk> chunksToUpdate = new ArrayList<>();
-
-                Chunk mainChunk = scene.getWorld().getChunk(chunkX, chunkZ);
-                if (mainChunk != null) {
-                    chunksToUpdate.add(mainChunk);
-                }
-
-                if (isOnBorderX || isOnBorderZ) {
-                    int borderX = isOnBorderX ? (blockPos.x % Chunk.WIDTH == 0 ? -1 : 1) : 0;
-                    int borderZ = isOnBorderZ ? (blockPos.z % Chunk.DEPTH == 0 ? -1 : 1) : 0;
-
-                    if (isOnBorderX) {
-                        Chunk adjacentX = scene.getWorld().getChunk(chunkX + borderX, chunkZ);
-                        if (adjacentX != null) {
-                            chunksToUpdate.add(adjacentX);
-                        }
-                    }
-
-                    if (isOnBorderZ) {
-                        Chunk adjacentZ = scene.getWorld().getChunk(chunkX, chunkZ + borderZ);
-                        if (adjacentZ != null) {
-                            chunksToUpdate.add(adjacentZ);
-                        }
-                    }
-
-                    if (isOnBorderX && isOnBorderZ) {
-                        Chunk diagonalChunk = scene.getWorld().getChunk(chunkX + borderX, chunkZ + borderZ);
-                        if (diagonalChunk != null) {
-                            chunksToUpdate.add(diagonalChunk);
-                        }
-                    }
-                }
-
-                for (Chunk chunk : chunksToUpdate) {
-                    chunk.rebuildFullMesh(scene.getWorld(), scene);
-                }
-
-                for (int dx = -1; dx <= 1; dx++) {
-                    for (int dz = -1; dz <= 1; dz++) {
-                        Chunk chunk = scene.getWorld().getChunk(chunkX + dx, chunkZ + dz);
-                        if (chunk != null && !chunksToUpdate.contains(chunk)) {
-                            chunk.setDirty(true);
-                        }
-                    }
-                }
+                scene.requestPriorityRemesh(blockPos.x, blockPos.z);
 
                 glfwPostEmptyEvent();
             }
@@ -245,61 +192,9 @@ public class InputHandler {
             if (scene.getWorld().getBlock(adjacentPos.x, adjacentPos.y, adjacentPos.z) == null &&
                     scene.getPlayer().getInventory().useSelectedBlock()) {
 
-                scene.getWorld().setBlock(adjacentPos.x, adjacentPos.y, adjacentPos.z, new Block(selectedType));
+                scene.getWorld().setBlock(adjacentPos.x, adjacentPos.y, adjacentPos.z, BlockRegistry.get(selectedType));
 
-                int chunkX = Math.floorDiv(adjacentPos.x, Chunk.WIDTH);
-                int chunkZ = Math.floorDiv(adjacentPos.z, Chunk.DEPTH);
-
-                boolean isOnBorderX = adjacentPos.x % Chunk.WIDTH == 0
-                        || adjacentPos.x % Chunk.WIDTH == Chunk.WIDTH - 1;
-                boolean isOnBorderZ = adjacentPos.z % Chunk.DEPTH == 0
-                        || adjacentPos.z % Chunk.DEPTH == Chunk.DEPTH - 1;
-
-                List<Chunk> chunksToUpdate = new ArrayList<>();
-
-                Chunk mainChunk = scene.getWorld().getChunk(chunkX, chunkZ);
-                if (mainChunk != null) {
-                    chunksToUpdate.add(mainChunk);
-                }
-
-                if (isOnBorderX || isOnBorderZ) {
-                    int borderX = isOnBorderX ? (adjacentPos.x % Chunk.WIDTH == 0 ? -1 : 1) : 0;
-                    int borderZ = isOnBorderZ ? (adjacentPos.z % Chunk.DEPTH == 0 ? -1 : 1) : 0;
-
-                    if (isOnBorderX) {
-                        Chunk adjacentX = scene.getWorld().getChunk(chunkX + borderX, chunkZ);
-                        if (adjacentX != null) {
-                            chunksToUpdate.add(adjacentX);
-                        }
-                    }
-
-                    if (isOnBorderZ) {
-                        Chunk adjacentZ = scene.getWorld().getChunk(chunkX, chunkZ + borderZ);
-                        if (adjacentZ != null) {
-                            chunksToUpdate.add(adjacentZ);
-                        }
-                    }
-
-                    if (isOnBorderX && isOnBorderZ) {
-                        Chunk diagonalChunk = scene.getWorld().getChunk(chunkX + borderX, chunkZ + borderZ);
-                        if (diagonalChunk != null) {
-                            chunksToUpdate.add(diagonalChunk);
-                        }
-                    }
-                }
-
-                for (Chunk chunk : chunksToUpdate) {
-                    chunk.rebuildFullMesh(scene.getWorld(), scene);
-                }
-
-                for (int dx = -1; dx <= 1; dx++) {
-                    for (int dz = -1; dz <= 1; dz++) {
-                        Chunk chunk = scene.getWorld().getChunk(chunkX + dx, chunkZ + dz);
-                        if (chunk != null && !chunksToUpdate.contains(chunk)) {
-                            chunk.setDirty(true);
-                        }
-                    }
-                }
+                scene.requestPriorityRemesh(adjacentPos.x, adjacentPos.z);
 
                 glfwPostEmptyEvent();
             }
@@ -2,6 +2,9 @@ package main;
 
 import core.Engine;
 import core.Window;
+import world.chunks.ChunkMesh;
+import world.generation.WorldGenerator;
+import world.storage.RegionStore;
 
 
 public class GameConfig {
@@ -15,6 +18,20 @@ public class GameConfig {
     private float initialWorldX = 0f;
     private float initialWorldZ = 0f;
     private float initialPlayerY = 75f;
+
+    private ChunkMesh.MeshingMode meshingMode = ChunkMesh.MeshingMode.GREEDY;
+    private int meshUploadBudgetBytes = 4 * 1024 * 1024;
+    private float meshUploadBudgetMillis = 4f;
+    private float chunkLoadHorizonSeconds = 2f;
+    private long chunkCacheBudgetBytes = 32L * 1024 * 1024;
+    private String worldDirectory = "saves/world";
+    // DELTA occupa circa un quarto del disco ma ogni caricamento rigenera il chunk: circa 1.5 volte il tempo di FULL
+    private RegionStore.StorageMode chunkStorageMode = RegionStore.StorageMode.FULL;
+    private long chunkSaveBudgetBytes = 8L * 1024 * 1024;
+    private long chunkSaveDelayMillis = 1000;
+    private long blockLogGroupCommitMillis = 5;
+    private int blockLogCheckpointSeconds = 30;
+    private long worldSeed = WorldGenerator.DEFAULT_SEED;
     
     private static GameConfig instance;
     
@@ -73,4 +90,100 @@ public class GameConfig {
     public float getInitialPlayerY() {
         return initialPlayerY;
     }
+
+    public ChunkMesh.MeshingMode getMeshingMode() {
+        return meshingMode;
+    }
+
+    public void setMeshingMode(ChunkMesh.MeshingMode meshingMode) {
+        this.meshingMode = meshingMode;
+    }
+
+    public int getMeshUploadBudgetBytes() {
+        return meshUploadBudgetBytes;
+    }
+
+    public void setMeshUploadBudgetBytes(int meshUploadBudgetBytes) {
+        this.meshUploadBudgetBytes = meshUploadBudgetBytes;
+    }
+
+    public float getMeshUploadBudgetMillis() {
+        return meshUploadBudgetMillis;
+    }
+
+    public void setMeshUploadBudgetMillis(float meshUploadBudgetMillis) {
+        this.meshUploadBudgetMillis = meshUploadBudgetMillis;
+    }
+
+    public float getChunkLoadHorizonSeconds() {
+        return chunkLoadHorizonSeconds;
+    }
+
+    public void setChunkLoadHorizonSeconds(float chunkLoadHorizonSeconds) {
+        this.chunkLoadHorizonSeconds = chunkLoadHorizonSeconds;
+    }
+
+    public long getChunkCacheBudgetBytes() {
+        return chunkCacheBudgetBytes;
+    }
+
+    public void setChunkCacheBudgetBytes(long chunkCacheBudgetBytes) {
+        this.chunkCacheBudgetBytes = chunkCacheBudgetBytes;
+    }
+
+    public String getWorldDirectory() {
+        return worldDirectory;
+    }
+
+    public void setWorldDirectory(String worldDirectory) {
+        this.worldDirectory = worldDirectory;
+    }
+
+    public long getChunkSaveBudgetBytes() {
+        return chunkSaveBudgetBytes;
+    }
+
+    public void setChunkSaveBudgetBytes(long chunkSaveBudgetBytes) {
+        this.chunkSaveBudgetBytes = chunkSaveBudgetBytes;
+    }
+
+    public long getChunkSaveDelayMillis() {
+        return chunkSaveDelayMillis;
+    }
+
+    public void setChunkSaveDelayMillis(long chunkSaveDelayMillis) {
+        this.chunkSaveDelayMillis = chunkSaveDelayMillis;
+    }
+
+    public RegionStore.StorageMode getChunkStorageMode() {
+        return chunkStorageMode;
+    }
+
+    public void setChunkStorageMode(RegionStore.StorageMode chunkStorageMode) {
+        this.chunkStorageMode = chunkStorageMode;
+    }
+
+    public long getBlockLogGroupCommitMillis() {
+        return blockLogGroupCommitMillis;
+    }
+
+    public void setBlockLogGroupCommitMillis(long blockLogGroupCommitMillis) {
+        this.blockLogGroupCommitMillis = blockLogGroupCommitMillis;
+    }
+
+    public int getBlockLogCheckpointSeconds() {
+        return blockLogCheckpointSeconds;
+    }
+
+    public void setBlockLogCheckpointSeconds(int blockLogCheckpointSeconds) {
+        this.blockLogCheckpointSeconds = blockLogCheckpointSeconds;
+    }
+
+    public long getWorldSeed() {
+        return worldSeed;
+    }
+
+    public void setWorldSeed(long worldSeed) {
+        this.worldSeed = worldSeed;
+    }
 }
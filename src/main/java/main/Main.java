@@ -8,6 +8,8 @@ import input.InputHandler;
 import rendering.Render;
 import rendering.ui.TextRenderer;
 import utils.Logger;
+import world.chunks.Chunk;
+import world.chunks.ChunkMesh;
 
 import static org.lwjgl.glfw.GLFW.*;
 import static org.lwjgl.opengl.GL11.*;
@@ -41,6 +43,7 @@ public class Main implements IAppLogic {
     
     private void initWorld(Scene scene) {
         GameConfig config = GameConfig.getInstance();
+        ChunkMesh.setMeshingMode(config.getMeshingMode());
         scene.getWorld().generateInitialWorld(
                 config.getInitialWorldX(), 
                 config.getInitialWorldZ()
@@ -89,6 +92,10 @@ public class Main implements IAppLogic {
                             !render.getSceneRender().isUsingCoordinates()
                     );
                 }
+
+                if (window.isKeyJustPressed(GLFW_KEY_F4)) {
+                    toggleMeshingMode(scene);
+                }
                 break;
                 
             case PAUSED:
@@ -102,6 +109,17 @@ public class Main implements IAppLogic {
         }
     }
 
+    private void toggleMeshingMode(Scene scene) {
+        ChunkMesh.MeshingMode mode = ChunkMesh.getMeshingMode() == ChunkMesh.MeshingMode.GREEDY
+                ? ChunkMesh.MeshingMode.NAIVE
+                : ChunkMesh.MeshingMode.GREEDY;
+        ChunkMesh.setMeshingMode(mode);
+        for (Chunk chunk : scene.getWorld().getLoadedChunks().values()) {
+            chunk.setDirty(true);
+        }
+        Logger.info("Meshing mode: " + mode);
+    }
+
     @Override
     public void update(Window window, Scene scene, Render render) {
         gameStateManager.update(0);
@@ -13,11 +13,14 @@ import rendering.ui.BlockOutline;
 import rendering.ui.Crosshair;
 import rendering.ui.HUD;
 import rendering.ui.TextRenderer;
+import scene.ChunkVisibilityStats;
 import scene.Entity;
 import scene.Scene;
+import utils.LatencyHistogram;
 import world.blocks.Block;
 import world.chunks.Chunk;
 import world.chunks.ChunkPosition;
+import world.storage.ChunkSaveQueue;
 
 import org.joml.Vector3f;
 
@@ -59,6 +62,9 @@ public class SceneRender {
     }
 
     public void render(Window window, Scene scene) {
+        scene.processPriorityRemeshes();
+        scene.uploadPendingMeshes();
+
         scene.getCamera().getFrustum().update(scene.getCamera().getViewMatrix(), scene.getProjection().getProjMatrix());
 
         if (fog.isUseFog()) {
@@ -83,6 +89,7 @@ public class SceneRender {
 
         TextureCacheAtlas textureCache = scene.getTextureCacheAtlas();
         TextureAtlas textureAtlas = textureCache.getAtlasTexture();
+        activeUniformsMap.setUniform("tileSize", textureAtlas.getTileUVSize());
         glActiveTexture(GL_TEXTURE0);
         textureAtlas.bind();
 
@@ -100,9 +107,6 @@ public class SceneRender {
             Model chunkModel = modelMap.get(modelId);
 
             if (chunkModel == null) {
-                if (chunk.isDirty()) {
-                    chunk.buildMesh(scene.getWorld(), scene);
-                }
                 continue;
             }
 
@@ -112,7 +116,7 @@ public class SceneRender {
                     glBindVertexArray(mesh.getVaoId());
                     chunkEntity.updateModelMatrix();
                     activeUniformsMap.setUniform("modelMatrix", chunkEntity.getModelMatrix());
-                    glDrawElements(GL_TRIANGLES, mesh.getNumVertices(), GL_UNSIGNED_INT, 0);
+                    glDrawElements(GL_TRIANGLES, mesh.getNumVertices(), mesh.getIndexType(), 0);
                     glBindVertexArray(0);
                 }
             }
@@ -146,6 +150,32 @@ public class SceneRender {
                 10,
                 10,
                 1.1f));
+        LatencyHistogram editLatency = scene.getEditLatency();
+        textEntries.add(new TextRenderer.TextEntry(
+                String.format("EDIT P50 %.1f P99 %.1f MAX %.1f N %d",
+                        editLatency.getPercentileMillis(0.5),
+                        editLatency.getPercentileMillis(0.99),
+                        editLatency.getMaxMillis(),
+                        editLatency.getCount()),
+                10,
+                30,
+                1.1f));
+        ChunkVisibilityStats visibilityStats = scene.getVisibilityStats();
+        textEntries.add(new TextRenderer.TextEntry(
+                String.format("READY %.1f N %d",
+                        visibilityStats.getReadyPercent(),
+                        visibilityStats.getEnteredCount()),
+                10,
+                50,
+                1.1f));
+        ChunkSaveQueue saveQueue = scene.getChunkSaveQueue();
+        textEntries.add(new TextRenderer.TextEntry(
+                String.format("SAVE Q %d KB %.1f",
+                        saveQueue.getQueueDepth(),
+                        saveQueue.getBytesPerSecond() / 1024f),
+                10,
+                70,
+                1.1f));
 
         glEnable(GL_BLEND);
         glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
@@ -182,7 +212,7 @@ public class SceneRender {
                 for (Entity entity : entities) {
                     entity.updateModelMatrix();
                     activeUniformsMap.setUniform("modelMatrix", entity.getModelMatrix());
-                    glDrawElements(GL_TRIANGLES, mesh.getNumVertices(), GL_UNSIGNED_INT, 0);
+                    glDrawElements(GL_TRIANGLES, mesh.getNumVertices(), mesh.getIndexType(), 0);
                 }
 
                 glBindVertexArray(0);
@@ -196,6 +226,7 @@ public class SceneRender {
         uniformsMap.createUniform("modelMatrix");
         uniformsMap.createUniform("txtSampler");
         uniformsMap.createUniform("viewMatrix");
+        uniformsMap.createUniform("tileSize");
     }
 
     public void setFogColor(Vector3f fogColor) {
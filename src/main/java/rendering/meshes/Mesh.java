@@ -1,9 +1,8 @@
 package rendering.meshes;
 
 import org.lwjgl.opengl.GL30;
-import org.lwjgl.system.MemoryUtil;
-import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import static org.lwjgl.opengl.GL11.*;
@@ -13,44 +12,47 @@ import static org.lwjgl.opengl.GL30.*;
 
 public class Mesh {
     private int numVertices;
+    private int indexType;
     private int vaoId;
     private List<Integer> vboIdList;
 
-    public Mesh(float[] positions, float[] textCoords, int[] indices) {
-        numVertices = indices.length;
+    public Mesh(IntBuffer vertices, ShortBuffer indices) {
+        uploadVertices(vertices);
+        int vboId = glGenBuffers();
+        vboIdList.add(vboId);
+        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, vboId);
+        glBufferData(GL_ELEMENT_ARRAY_BUFFER, indices, GL_STATIC_DRAW);
+        finishUpload(indices.remaining(), GL_UNSIGNED_SHORT);
+    }
+
+    public Mesh(IntBuffer vertices, IntBuffer indices) {
+        uploadVertices(vertices);
+        int vboId = glGenBuffers();
+        vboIdList.add(vboId);
+        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, vboId);
+        glBufferData(GL_ELEMENT_ARRAY_BUFFER, indices, GL_STATIC_DRAW);
+        finishUpload(indices.remaining(), GL_UNSIGNED_INT);
+    }
+
+    // Un solo attributo intero per vertice, decodificato nello shader
+    private void uploadVertices(IntBuffer vertices) {
         vboIdList = new ArrayList<>();
         vaoId = glGenVertexArrays();
         glBindVertexArray(vaoId);
 
         int vboId = glGenBuffers();
         vboIdList.add(vboId);
-        FloatBuffer posBuffer = MemoryUtil.memAllocFloat(positions.length);
-        posBuffer.put(positions).flip();
         glBindBuffer(GL_ARRAY_BUFFER, vboId);
-        glBufferData(GL_ARRAY_BUFFER, posBuffer, GL_STATIC_DRAW);
+        glBufferData(GL_ARRAY_BUFFER, vertices, GL_STATIC_DRAW);
         glEnableVertexAttribArray(0);
-        glVertexAttribPointer(0, 3, GL_FLOAT, false, 0, 0);
-
-        vboId = glGenBuffers();
-        vboIdList.add(vboId);
-        FloatBuffer texBuffer = MemoryUtil.memAllocFloat(textCoords.length);
-        texBuffer.put(textCoords).flip();
-        glBindBuffer(GL_ARRAY_BUFFER, vboId);
-        glBufferData(GL_ARRAY_BUFFER, texBuffer, GL_STATIC_DRAW);
-        glEnableVertexAttribArray(1);
-        glVertexAttribPointer(1, 2, GL_FLOAT, false, 0, 0);
+        glVertexAttribIPointer(0, 1, GL_UNSIGNED_INT, 0, 0);
+    }
 
-        vboId = glGenBuffers();
-        vboIdList.add(vboId);
-        IntBuffer indicesBuffer = MemoryUtil.memAllocInt(indices.length);
-        indicesBuffer.put(indices).flip();
-        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, vboId);
-        glBufferData(GL_ELEMENT_ARRAY_BUFFER, indicesBuffer, GL_STATIC_DRAW);
+    private void finishUpload(int indexCount, int indexType) {
+        this.numVertices = indexCount;
+        this.indexType = indexType;
         glBindBuffer(GL_ARRAY_BUFFER, 0);
         glBindVertexArray(0);
-        MemoryUtil.memFree(posBuffer);
-        MemoryUtil.memFree(texBuffer);
-        MemoryUtil.memFree(indicesBuffer);
     }
 
     public void cleanup() {
@@ -62,7 +64,11 @@ public class Mesh {
         return numVertices;
     }
 
+    public int getIndexType() {
+        return indexType;
+    }
+
     public int getVaoId() {
         return vaoId;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,91 @@
+package rendering.meshes;
+
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
+import org.lwjgl.system.MemoryUtil;
+
+/*
+ * Buffer off-heap riutilizzabile per costruire mesh senza boxing.
+ * Ogni vertice è un singolo int impacchettato; gli indici dei quad vengono
+ * generati in buildData(), a 16 bit quando il numero di vertici lo permette.
+ * Non è thread-safe: ogni thread deve usare la propria istanza.
+ */
+public class MeshBuilder {
+    private static final int INITIAL_QUADS = 1024;
+    private static final int MAX_SHORT_INDEX_VERTICES = 1 << 16;
+
+    private IntBuffer vertices;
+    private int vertexCount;
+
+    public MeshBuilder() {
+        vertices = MemoryUtil.memAllocInt(INITIAL_QUADS * 4);
+        vertexCount = 0;
+    }
+
+    public void reset() {
+        vertices.clear();
+        vertexCount = 0;
+    }
+
+    public void ensureQuadCapacity(int quads) {
+        if (vertices.remaining() < quads * 4) {
+            vertices = MemoryUtil.memRealloc(vertices, grow(vertices.capacity(), vertices.position() + quads * 4));
+        }
+    }
+
+    private static int grow(int capacity, int required) {
+        return Math.max(capacity * 2, required);
+    }
+
+    public void vertex(int packed) {
+        vertices.put(packed);
+    }
+
+    public void endQuad() {
+        vertexCount += 4;
+    }
+
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    public int getIndexCount() {
+        return vertexCount / 4 * 6;
+    }
+
+    public boolean usesShortIndices() {
+        return vertexCount <= MAX_SHORT_INDEX_VERTICES;
+    }
+
+    // Copia la geometria in buffer della dimensione esatta; il builder torna riutilizzabile
+    public MeshData buildData() {
+        IntBuffer vertexData = MemoryUtil.memAllocInt(Math.max(1, vertexCount));
+        vertices.flip();
+        vertexData.put(vertices).flip();
+
+        int indexCount = getIndexCount();
+        MeshData data;
+        if (usesShortIndices()) {
+            ShortBuffer indexData = MemoryUtil.memAllocShort(Math.max(1, indexCount));
+            for (int start = 0; start < vertexCount; start += 4) {
+                indexData.put((short) start).put((short) (start + 1)).put((short) (start + 2));
+                indexData.put((short) start).put((short) (start + 2)).put((short) (start + 3));
+            }
+            data = new MeshData(vertexData, indexData.flip(), null);
+        } else {
+            IntBuffer indexData = MemoryUtil.memAllocInt(indexCount);
+            for (int start = 0; start < vertexCount; start += 4) {
+                indexData.put(start).put(start + 1).put(start + 2);
+                indexData.put(start).put(start + 2).put(start + 3);
+            }
+            data = new MeshData(vertexData, null, indexData.flip());
+        }
+        reset();
+        return data;
+    }
+
+    public void free() {
+        MemoryUtil.memFree(vertices);
+    }
+}
@@ -0,0 +1,75 @@
+package rendering.meshes;
+
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
+import org.lwjgl.system.MemoryUtil;
+
+/*
+ * Geometria pronta per l'upload ma senza alcuna chiamata GL: può essere
+ * prodotta su un worker e caricata in seguito sul thread di rendering.
+ * I buffer sono off-heap e vengono liberati da upload() o free(), tranne quelli
+ * presi da una mappatura su file (mapped), che restano alla mappatura.
+ */
+public class MeshData {
+    private IntBuffer vertices;
+    private ShortBuffer shortIndices;
+    private IntBuffer intIndices;
+    private final int sizeBytes;
+    private final boolean owned;
+
+    MeshData(IntBuffer vertices, ShortBuffer shortIndices, IntBuffer intIndices) {
+        this(vertices, shortIndices, intIndices, true);
+    }
+
+    private MeshData(IntBuffer vertices, ShortBuffer shortIndices, IntBuffer intIndices, boolean owned) {
+        this.owned = owned;
+        this.vertices = vertices;
+        this.shortIndices = shortIndices;
+        this.intIndices = intIndices;
+        this.sizeBytes = vertices.remaining() * Integer.BYTES
+                + (shortIndices != null ? shortIndices.remaining() * Short.BYTES : intIndices.remaining() * Integer.BYTES);
+    }
+
+    // Buffer diretti letti da un file mappato: upload senza copie intermedie, nessuna memoria da liberare
+    public static MeshData mapped(IntBuffer vertices, ShortBuffer shortIndices, IntBuffer intIndices) {
+        return new MeshData(vertices, shortIndices, intIndices, false);
+    }
+
+    // Viste in sola lettura, per chi deve copiare la geometria altrove (ad esempio su disco)
+    public IntBuffer getVertices() {
+        return vertices.asReadOnlyBuffer();
+    }
+
+    public ShortBuffer getShortIndices() {
+        return shortIndices != null ? shortIndices.asReadOnlyBuffer() : null;
+    }
+
+    public IntBuffer getIntIndices() {
+        return intIndices != null ? intIndices.asReadOnlyBuffer() : null;
+    }
+
+    public int getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public Mesh upload() {
+        if (vertices == null) {
+            throw new IllegalStateException("MeshData already released");
+        }
+        Mesh mesh = shortIndices != null ? new Mesh(vertices, shortIndices) : new Mesh(vertices, intIndices);
+        free();
+        return mesh;
+    }
+
+    public void free() {
+        if (owned) {
+            MemoryUtil.memFree(vertices);
+            MemoryUtil.memFree(shortIndices);
+            MemoryUtil.memFree(intIndices);
+        }
+        vertices = null;
+        shortIndices = null;
+        intIndices = null;
+    }
+}
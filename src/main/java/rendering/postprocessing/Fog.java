@@ -38,6 +38,7 @@ public class Fog {
         uniformsMap.createUniform("modelMatrix");
         uniformsMap.createUniform("txtSampler");
         uniformsMap.createUniform("viewMatrix");
+        uniformsMap.createUniform("tileSize");
         uniformsMap.createUniform("fogColor");
         uniformsMap.createUniform("cameraPosition");
         uniformsMap.createUniform("fogDensity");
@@ -1,5 +1,6 @@
 package rendering.textures;
 
+import org.joml.Vector2f;
 import org.lwjgl.BufferUtils;
 import org.lwjgl.system.MemoryStack;
 
@@ -18,12 +19,14 @@ public class TextureAtlas {
     private int atlasHeight;
     private int tileSize;
     private String texturePath;
+    private final Vector2f tileUVSize;
 
     public TextureAtlas(String texturePath, int atlasWidth, int atlasHeight, int tileSize) {
         this.texturePath = texturePath;
         this.atlasWidth = atlasWidth;
         this.atlasHeight = atlasHeight;
         this.tileSize = tileSize;
+        this.tileUVSize = new Vector2f(tileSize / (float) atlasWidth, tileSize / (float) atlasHeight);
 
         try (MemoryStack stack = MemoryStack.stackPush()) {
             InputStream in = Main.class.getClassLoader().getResourceAsStream(texturePath);
@@ -78,6 +81,10 @@ public class TextureAtlas {
         return new float[] { uMin, vMin, uMax, vMax };
     }
 
+    public Vector2f getTileUVSize() {
+        return tileUVSize;
+    }
+
     public String getTexturePath() {
         return texturePath;
     }
@@ -74,6 +74,11 @@ public class TextureCacheAtlas {
         });
     }
 
+    public int[] getTilePosition(String textureName) {
+        int[] pos = texturePositions.get(textureName);
+        return pos != null ? pos : texturePositions.get("default");
+    }
+
     public float[] getUVCoordinates(String textureName) {
         if (!uvCache.containsKey(textureName)) {
             if (!texturePositions.containsKey(textureName)) {
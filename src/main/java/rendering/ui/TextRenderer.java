@@ -286,6 +286,92 @@ public class TextRenderer {
                         case '-' -> new float[][] {
                                         { 1, CENTER_Y, CHAR_WIDTH - 1, CENTER_Y }
                         };
+                        case '.' -> new float[][] {
+                                        { CHAR_WIDTH / 2 - 1, CHAR_HEIGHT - 2, CHAR_WIDTH / 2 + 1, CHAR_HEIGHT }
+                        };
+                        case 'A' -> new float[][] {
+                                        { 0, CHAR_HEIGHT, CHAR_WIDTH / 2, 0 },
+                                        { CHAR_WIDTH / 2, 0, CHAR_WIDTH, CHAR_HEIGHT },
+                                        { CHAR_WIDTH / 4, CHAR_HEIGHT / 2, 3 * CHAR_WIDTH / 4, CHAR_HEIGHT / 2 }
+                        };
+                        case 'B' -> new float[][] {
+                                        { 0, 0, 0, CHAR_HEIGHT },
+                                        { 0, 0, 3 * CHAR_WIDTH / 4, 0 },
+                                        { 3 * CHAR_WIDTH / 4, 0, 3 * CHAR_WIDTH / 4, CHAR_HEIGHT / 2 },
+                                        { 0, CHAR_HEIGHT / 2, CHAR_WIDTH, CHAR_HEIGHT / 2 },
+                                        { CHAR_WIDTH, CHAR_HEIGHT / 2, CHAR_WIDTH, CHAR_HEIGHT },
+                                        { 0, CHAR_HEIGHT, CHAR_WIDTH, CHAR_HEIGHT }
+                        };
+                        case 'D' -> new float[][] {
+                                        { 0, 0, 0, CHAR_HEIGHT },
+                                        { 0, 0, CHAR_WIDTH / 2, 0 },
+                                        { CHAR_WIDTH / 2, 0, CHAR_WIDTH, CHAR_HEIGHT / 4 },
+                                        { CHAR_WIDTH, CHAR_HEIGHT / 4, CHAR_WIDTH, 3 * CHAR_HEIGHT / 4 },
+                                        { CHAR_WIDTH, 3 * CHAR_HEIGHT / 4, CHAR_WIDTH / 2, CHAR_HEIGHT },
+                                        { CHAR_WIDTH / 2, CHAR_HEIGHT, 0, CHAR_HEIGHT }
+                        };
+                        case 'E' -> new float[][] {
+                                        { 0, 0, 0, CHAR_HEIGHT },
+                                        { 0, 0, CHAR_WIDTH, 0 },
+                                        { 0, CHAR_HEIGHT / 2, 3 * CHAR_WIDTH / 4, CHAR_HEIGHT / 2 },
+                                        { 0, CHAR_HEIGHT, CHAR_WIDTH, CHAR_HEIGHT }
+                        };
+                        case 'I' -> new float[][] {
+                                        { CHAR_WIDTH / 2, 0, CHAR_WIDTH / 2, CHAR_HEIGHT },
+                                        { CHAR_WIDTH / 4, 0, 3 * CHAR_WIDTH / 4, 0 },
+                                        { CHAR_WIDTH / 4, CHAR_HEIGHT, 3 * CHAR_WIDTH / 4, CHAR_HEIGHT }
+                        };
+                        case 'K' -> new float[][] {
+                                        { 0, 0, 0, CHAR_HEIGHT },
+                                        { 0, CHAR_HEIGHT / 2, CHAR_WIDTH, 0 },
+                                        { 0, CHAR_HEIGHT / 2, CHAR_WIDTH, CHAR_HEIGHT }
+                        };
+                        case 'M' -> new float[][] {
+                                        { 0, CHAR_HEIGHT, 0, 0 },
+                                        { 0, 0, CHAR_WIDTH / 2, CHAR_HEIGHT / 2 },
+                                        { CHAR_WIDTH / 2, CHAR_HEIGHT / 2, CHAR_WIDTH, 0 },
+                                        { CHAR_WIDTH, 0, CHAR_WIDTH, CHAR_HEIGHT }
+                        };
+                        case 'N' -> new float[][] {
+                                        { 0, CHAR_HEIGHT, 0, 0 },
+                                        { 0, 0, CHAR_WIDTH, CHAR_HEIGHT },
+                                        { CHAR_WIDTH, CHAR_HEIGHT, CHAR_WIDTH, 0 }
+                        };
+                        case 'P' -> new float[][] {
+                                        { 0, CHAR_HEIGHT, 0, 0 },
+                                        { 0, 0, CHAR_WIDTH, 0 },
+                                        { CHAR_WIDTH, 0, CHAR_WIDTH, CHAR_HEIGHT / 2 },
+                                        { CHAR_WIDTH, CHAR_HEIGHT / 2, 0, CHAR_HEIGHT / 2 }
+                        };
+                        case 'Q' -> new float[][] {
+                                        { 0, 0, CHAR_WIDTH, 0 },
+                                        { CHAR_WIDTH, 0, CHAR_WIDTH, CHAR_HEIGHT },
+                                        { CHAR_WIDTH, CHAR_HEIGHT, 0, CHAR_HEIGHT },
+                                        { 0, CHAR_HEIGHT, 0, 0 },
+                                        { CHAR_WIDTH / 2, CHAR_HEIGHT / 2, CHAR_WIDTH, CHAR_HEIGHT }
+                        };
+                        case 'R' -> new float[][] {
+                                        { 0, CHAR_HEIGHT, 0, 0 },
+                                        { 0, 0, CHAR_WIDTH, 0 },
+                                        { CHAR_WIDTH, 0, CHAR_WIDTH, CHAR_HEIGHT / 2 },
+                                        { CHAR_WIDTH, CHAR_HEIGHT / 2, 0, CHAR_HEIGHT / 2 },
+                                        { CHAR_WIDTH / 2, CHAR_HEIGHT / 2, CHAR_WIDTH, CHAR_HEIGHT }
+                        };
+                        case 'S' -> new float[][] {
+                                        { CHAR_WIDTH, 0, 0, 0 },
+                                        { 0, 0, 0, CHAR_HEIGHT / 2 },
+                                        { 0, CHAR_HEIGHT / 2, CHAR_WIDTH, CHAR_HEIGHT / 2 },
+                                        { CHAR_WIDTH, CHAR_HEIGHT / 2, CHAR_WIDTH, CHAR_HEIGHT },
+                                        { CHAR_WIDTH, CHAR_HEIGHT, 0, CHAR_HEIGHT }
+                        };
+                        case 'T' -> new float[][] {
+                                        { 0, 0, CHAR_WIDTH, 0 },
+                                        { CHAR_WIDTH / 2, 0, CHAR_WIDTH / 2, CHAR_HEIGHT }
+                        };
+                        case 'V' -> new float[][] {
+                                        { 0, 0, CHAR_WIDTH / 2, CHAR_HEIGHT },
+                                        { CHAR_WIDTH / 2, CHAR_HEIGHT, CHAR_WIDTH, 0 }
+                        };
                         default -> new float[0][];
                 };
         }
@@ -0,0 +1,68 @@
+package scene;
+
+import org.joml.Vector3f;
+
+import main.GameConfig;
+import world.blocks.Block;
+import world.chunks.Chunk;
+import world.chunks.ChunkLoadScheduler;
+import world.chunks.ChunkPosition;
+
+/*
+ * Ordine di caricamento dei chunk: distanza (in chunk) dal giocatore o dal punto
+ * in cui sarà dopo loadHorizonSeconds alla velocità attuale, se più vicino.
+ * I chunk fuori dal frustum costano il doppio, tranne l'anello attorno al giocatore.
+ */
+public class ChunkLoadPolicy implements ChunkLoadScheduler.Prioritizer {
+    private static final float OUTSIDE_FRUSTUM_PENALTY = 2f;
+    private static final float ALWAYS_NEAR_DISTANCE = 1.5f;
+
+    private final Camera camera;
+    private final Vector3f velocity = new Vector3f();
+    private final Vector3f boxMin = new Vector3f();
+    private final Vector3f boxMax = new Vector3f();
+    private float playerX;
+    private float playerZ;
+
+    public ChunkLoadPolicy(Camera camera) {
+        this.camera = camera;
+    }
+
+    // Velocità in blocchi al secondo
+    public void update(float playerX, float playerZ, Vector3f velocity) {
+        this.playerX = playerX;
+        this.playerZ = playerZ;
+        this.velocity.set(velocity);
+    }
+
+    @Override
+    public float score(ChunkPosition position) {
+        float chunkWidth = Chunk.WIDTH * Block.BLOCK_SIZE;
+        float chunkDepth = Chunk.DEPTH * Block.BLOCK_SIZE;
+        float centerX = (position.getX() + 0.5f) * chunkWidth;
+        float centerZ = (position.getZ() + 0.5f) * chunkDepth;
+
+        float distance = distance(playerX, playerZ, centerX, centerZ, chunkWidth);
+        float horizon = GameConfig.getInstance().getChunkLoadHorizonSeconds();
+        float projectedX = playerX + velocity.x * horizon;
+        float projectedZ = playerZ + velocity.z * horizon;
+        distance = Math.min(distance, distance(projectedX, projectedZ, centerX, centerZ, chunkWidth));
+
+        if (distance <= ALWAYS_NEAR_DISTANCE || isInFrustum(position, chunkWidth, chunkDepth)) {
+            return distance;
+        }
+        return distance * OUTSIDE_FRUSTUM_PENALTY;
+    }
+
+    private static float distance(float x, float z, float centerX, float centerZ, float chunkWidth) {
+        float dx = (centerX - x) / chunkWidth;
+        float dz = (centerZ - z) / chunkWidth;
+        return (float) Math.sqrt(dx * dx + dz * dz);
+    }
+
+    private boolean isInFrustum(ChunkPosition position, float chunkWidth, float chunkDepth) {
+        boxMin.set(position.getX() * chunkWidth, 0, position.getZ() * chunkDepth);
+        boxMax.set(boxMin.x + chunkWidth, Chunk.HEIGHT * Block.BLOCK_SIZE, boxMin.z + chunkDepth);
+        return camera.getFrustum().isBoxInFrustum(boxMin, boxMax);
+    }
+}
@@ -0,0 +1,67 @@
+package scene;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.joml.Vector3f;
+
+import world.World;
+import world.blocks.Block;
+import world.chunks.Chunk;
+import world.chunks.ChunkPosition;
+
+/*
+ * Conta quante volte un chunk che entra nel frustum (entro la render distance)
+ * aveva già una mesh pronta. Il primo aggiornamento fa solo da riferimento.
+ */
+public class ChunkVisibilityStats {
+    private Set<ChunkPosition> visible = new HashSet<>();
+    private Set<ChunkPosition> nextVisible = new HashSet<>();
+    private final Vector3f boxMin = new Vector3f();
+    private final Vector3f boxMax = new Vector3f();
+    private boolean initialized;
+    private long readyCount;
+    private long enteredCount;
+
+    public void update(World world, Camera camera, int centerX, int centerZ, int renderDistance) {
+        float chunkWidth = Chunk.WIDTH * Block.BLOCK_SIZE;
+        float chunkDepth = Chunk.DEPTH * Block.BLOCK_SIZE;
+        nextVisible.clear();
+
+        for (int dx = -renderDistance; dx <= renderDistance; dx++) {
+            for (int dz = -renderDistance; dz <= renderDistance; dz++) {
+                int chunkX = centerX + dx;
+                int chunkZ = centerZ + dz;
+                boxMin.set(chunkX * chunkWidth, 0, chunkZ * chunkDepth);
+                boxMax.set(boxMin.x + chunkWidth, Chunk.HEIGHT * Block.BLOCK_SIZE, boxMin.z + chunkDepth);
+                if (!camera.getFrustum().isBoxInFrustum(boxMin, boxMax)) {
+                    continue;
+                }
+
+                ChunkPosition position = new ChunkPosition(chunkX, chunkZ);
+                nextVisible.add(position);
+                if (initialized && !visible.contains(position)) {
+                    enteredCount++;
+                    Chunk chunk = world.getChunk(chunkX, chunkZ);
+                    if (chunk != null && chunk.getChunkEntity() != null) {
+                        readyCount++;
+                    }
+                }
+            }
+        }
+
+        Set<ChunkPosition> swap = visible;
+        visible = nextVisible;
+        nextVisible = swap;
+        initialized = true;
+    }
+
+    public long getEnteredCount() {
+        return enteredCount;
+    }
+
+    // Percentuale, 100 se nessun chunk è ancora entrato in vista
+    public float getReadyPercent() {
+        return enteredCount == 0 ? 100f : readyCount * 100f / enteredCount;
+    }
+}
@@ -4,25 +4,51 @@ import org.joml.Vector3f;
 import org.joml.Vector4f;
 import org.lwjgl.glfw.GLFW;
 
+import main.GameConfig;
 import rendering.meshes.Mesh;
+import rendering.meshes.MeshData;
 import rendering.meshes.Model;
 import rendering.textures.TextureCacheAtlas;
 import scene.entities.Player;
+import utils.LatencyHistogram;
 import utils.Logger;
 import world.chunks.Chunk;
+import world.chunks.ChunkLoadScheduler;
+import world.chunks.ChunkMesh;
 import world.chunks.ChunkPosition;
+import world.chunks.ChunkSnapshot;
+import world.chunks.ChunkState;
 import world.World;
+import world.events.WorldEvent.BlockChangeEvent;
+import world.generation.GenerationPipeline;
+import world.generation.WorldGenerator;
+import world.storage.BlockChangeLog;
+import world.storage.ChunkCache;
+import world.storage.ChunkCodec;
+import world.storage.ChunkMeshCache;
+import world.storage.ChunkSaveQueue;
+import world.storage.RegionStore;
 import world.blocks.Block;
+import world.blocks.BlockRegistry;
 import world.blocks.Block.BlockType;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Scene {
     private static TextureCacheAtlas textureCacheAtlas;
+    private static final Vector4f[] textureRegions = new Vector4f[BlockRegistry.getTextureCount()];
+    private static final int[][] textureTiles = new int[BlockRegistry.getTextureCount()][];
     private static Map<String, Model> modelMap;
     private static Map<String, Entity> entityMap;
 
@@ -34,17 +60,37 @@ public class Scene {
 
     private int currentCenterChunkX = Integer.MIN_VALUE;
     private int currentCenterChunkZ = Integer.MIN_VALUE;
-    private static final Object chunkLock = new Object();
 
-    private ExecutorService chunkGenerationExecutor;
+    private ChunkLoadScheduler chunkLoadScheduler;
+    private GenerationPipeline generationPipeline;
     private AtomicBoolean isUpdatingChunks = new AtomicBoolean(false);
 
-    private final Queue<Chunk> meshGenerationQueue = new ConcurrentLinkedQueue<>();
+    // Meshing sui worker, upload sul thread GL entro un budget per frame
+    private ExecutorService meshExecutor;
+    private final Queue<PendingMesh> pendingMeshUploads = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger meshJobsInFlight = new AtomicInteger();
+    private int maxMeshJobsInFlight;
+
+    // Corsia prioritaria per le modifiche del giocatore: servita prima dei risultati in coda, nello stesso frame
+    private final Queue<PriorityRemesh> priorityRemeshes = new ConcurrentLinkedQueue<>();
+    private final List<Long> editsAwaitingFrame = new ArrayList<>();
+    private final LatencyHistogram editLatency = new LatencyHistogram();
 
     private static final int BUFFER_DISTANCE = 2;
+    private static final int BLOCK_LOG_BUFFER_BYTES = 1024 * 1024;
 
     private Vector3f lastPlayerPosition = new Vector3f(0, 0, 0);
-    private Vector3f playerMoveDirection = new Vector3f(0, 0, 0);
+    private Vector3f playerVelocity = new Vector3f(0, 0, 0);
+    private long lastPlayerSampleNanos;
+    private ChunkLoadPolicy chunkLoadPolicy;
+    private ChunkCache chunkCache;
+    private RegionStore regionStore;
+    private ChunkSaveQueue chunkSaveQueue;
+    private BlockChangeLog blockLog;
+    private ChunkMeshCache meshCache;
+    private Path worldDirectory;
+    private long lastCheckpointMillis = System.currentTimeMillis();
+    private final ChunkVisibilityStats visibilityStats = new ChunkVisibilityStats();
 
     static {
         modelMap = new HashMap<>();
@@ -60,9 +106,49 @@ public class Scene {
         textureCacheAtlas = new TextureCacheAtlas("textures/atlas2.png", 512, 512, 16);
 
         int processors = Runtime.getRuntime().availableProcessors();
-        chunkGenerationExecutor = Executors.newFixedThreadPool(processors / 2);
+        int workerThreads = Math.max(1, processors / 2);
+        chunkLoadScheduler = new ChunkLoadScheduler(workerThreads, workerThreads * 4);
+        chunkLoadPolicy = new ChunkLoadPolicy(camera);
+        chunkLoadScheduler.setPrioritizer(chunkLoadPolicy);
+        // Un core resta al thread principale
+        generationPipeline = new GenerationPipeline(Math.max(1, processors - 1));
+        chunkLoadScheduler.setGenerationPipeline(generationPipeline);
+        world.setGenerationPipeline(generationPipeline);
+        chunkCache = new ChunkCache(GameConfig.getInstance().getChunkCacheBudgetBytes());
+        // Prima di qualsiasi generazione: anche la rilettura del log e i delta salvati dipendono dal seme
+        WorldGenerator.setWorldSeed(GameConfig.getInstance().getWorldSeed());
+        worldDirectory = Paths.get(GameConfig.getInstance().getWorldDirectory());
+        regionStore = new RegionStore(worldDirectory, GameConfig.getInstance().getChunkStorageMode());
+        replayBlockLog();
+        try {
+            blockLog = new BlockChangeLog(worldDirectory, GameConfig.getInstance().getBlockLogGroupCommitMillis(),
+                    BLOCK_LOG_BUFFER_BYTES);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        ChunkLoadScheduler.ChunkSource savedChunks = chunk -> chunkCache.load(chunk) || regionStore.load(chunk);
+        chunkLoadScheduler.setChunkSource(savedChunks);
+        world.setChunkSource(savedChunks);
+        meshCache = new ChunkMeshCache(worldDirectory.resolve("meshcache"));
+        chunkSaveQueue = new ChunkSaveQueue(regionStore, GameConfig.getInstance().getChunkSaveBudgetBytes(),
+                GameConfig.getInstance().getChunkSaveDelayMillis());
+        world.addEventListener(event -> {
+            if (event instanceof BlockChangeEvent change) {
+                Chunk chunk = world.getChunk(Math.floorDiv(change.getX(), Chunk.WIDTH), Math.floorDiv(change.getZ(), Chunk.DEPTH));
+                if (chunk != null) {
+                    // Prima la coda e poi il log: un checkpoint copre così ogni record già nel segmento chiuso
+                    chunkSaveQueue.markModified(chunk);
+                    if (blockLog != null) {
+                        blockLog.append(change.getX(), change.getY(), change.getZ(), BlockRegistry.getId(change.getNewBlock()));
+                    }
+                }
+            }
+        });
 
-        Logger.info("Sistema multithreading inizializzato con " + processors / 2 + " available threads.");
+        meshExecutor = Executors.newFixedThreadPool(workerThreads);
+        maxMeshJobsInFlight = workerThreads * 2;
+
+        Logger.info("Sistema multithreading inizializzato con " + workerThreads + " available threads.");
 
         currentCenterChunkX = (int) Math.floor(0 / (Chunk.WIDTH * Block.BLOCK_SIZE));
         currentCenterChunkZ = (int) Math.floor(0 / (Chunk.DEPTH * Block.BLOCK_SIZE));
@@ -96,39 +182,25 @@ public class Scene {
     }
 
     public static Vector4f getBlockTextureRegion(BlockType type, Block.Face face) {
-        String textureKey;
-
-        switch (type) {
-            case GRASS:
-                if (face == Block.Face.TOP) {
-                    textureKey = "grass_top";
-                } else if (face == Block.Face.BOTTOM) {
-                    textureKey = "dirt";
-                } else {
-                    textureKey = "grass_side";
-                }
-                break;
-            case DIRT:
-                textureKey = "dirt";
-                break;
-            case STONE:
-                textureKey = "stone";
-                break;
-            case WATER:
-                textureKey = "water";
-                break;
-            case WOOD:
-                textureKey = "wood";
-                break;
-            case LEAVES:
-                textureKey = "leaves";
-                break;
-            default:
-                textureKey = "default";
-                break;
+        return getTextureRegion(BlockRegistry.getFaceTexture(BlockRegistry.getId(type), face));
+    }
+
+    public static Vector4f getTextureRegion(int textureIndex) {
+        Vector4f region = textureRegions[textureIndex];
+        if (region == null) {
+            region = textureCacheAtlas.getTextureRegion(BlockRegistry.getTextureName(textureIndex));
+            textureRegions[textureIndex] = region;
         }
+        return region;
+    }
 
-        return textureCacheAtlas.getTextureRegion(textureKey);
+    public static int[] getTextureTile(int textureIndex) {
+        int[] tile = textureTiles[textureIndex];
+        if (tile == null) {
+            tile = textureCacheAtlas.getTilePosition(BlockRegistry.getTextureName(textureIndex));
+            textureTiles[textureIndex] = tile;
+        }
+        return tile;
     }
 
     public void updateWorldGeneration(float playerX, float playerZ) {
@@ -137,16 +209,17 @@ public class Scene {
         }
 
         try {
-            Vector3f currentPos = new Vector3f(playerX, 0, playerZ);
-            if (!lastPlayerPosition.equals(0, 0, 0)) {
-                playerMoveDirection.set(currentPos).sub(lastPlayerPosition).normalize();
-            }
-            lastPlayerPosition.set(currentPos);
+            checkpointBlockLogIfDue();
+            updatePlayerVelocity(playerX, playerZ);
+            chunkLoadPolicy.update(playerX, playerZ, playerVelocity);
 
             int newCenterChunkX = (int) Math.floor(playerX / (Chunk.WIDTH * Block.BLOCK_SIZE));
             int newCenterChunkZ = (int) Math.floor(playerZ / (Chunk.DEPTH * Block.BLOCK_SIZE));
+            visibilityStats.update(world, camera, newCenterChunkX, newCenterChunkZ, world.getRenderDistance());
 
             if (newCenterChunkX == currentCenterChunkX && newCenterChunkZ == currentCenterChunkZ) {
+                chunkLoadScheduler.reprioritize();
+                integrateLoadedChunks();
                 processDirtyChunks();
                 isUpdatingChunks.set(false);
                 return;
@@ -154,164 +227,71 @@ public class Scene {
 
             currentCenterChunkX = newCenterChunkX;
             currentCenterChunkZ = newCenterChunkZ;
+            world.recenter(currentCenterChunkX, currentCenterChunkZ);
 
             Map<ChunkPosition, Chunk> loadedChunks = world.getLoadedChunks();
             int renderDistance = world.getRenderDistance();
             int totalDistance = renderDistance + BUFFER_DISTANCE;
+            chunkLoadScheduler.recenter(currentCenterChunkX, currentCenterChunkZ, totalDistance + 1);
 
             Set<ChunkPosition> chunksToRemove = new HashSet<>();
-            synchronized (chunkLock) {
-                for (Map.Entry<ChunkPosition, Chunk> entry : loadedChunks.entrySet()) {
-                    ChunkPosition chunkPos = entry.getKey();
-                    int chunkDistanceX = Math.abs(chunkPos.getX() - currentCenterChunkX);
-                    int chunkDistanceZ = Math.abs(chunkPos.getZ() - currentCenterChunkZ);
-                    if (chunkDistanceX > totalDistance + 1 || chunkDistanceZ > totalDistance + 1) {
-                        chunksToRemove.add(chunkPos);
-                    }
+            for (Map.Entry<ChunkPosition, Chunk> entry : loadedChunks.entrySet()) {
+                ChunkPosition chunkPos = entry.getKey();
+                int chunkDistanceX = Math.abs(chunkPos.getX() - currentCenterChunkX);
+                int chunkDistanceZ = Math.abs(chunkPos.getZ() - currentCenterChunkZ);
+                if (chunkDistanceX > totalDistance + 1 || chunkDistanceZ > totalDistance + 1) {
+                    chunksToRemove.add(chunkPos);
                 }
             }
 
-            if (!chunksToRemove.isEmpty()) {
-                for (ChunkPosition posToRemove : chunksToRemove) {
-                    synchronized (chunkLock) {
-                        Chunk chunkToRemove = loadedChunks.get(posToRemove);
-                        if (chunkToRemove != null) {
-                            cleanupChunk(chunkToRemove);
-                            loadedChunks.remove(posToRemove);
-                            if (loadedChunks.containsKey(posToRemove)) {
-                                loadedChunks.remove(posToRemove);
-                            }
-                        }
-                    }
+            for (ChunkPosition posToRemove : chunksToRemove) {
+                Chunk chunkToRemove = world.removeChunk(posToRemove);
+                if (chunkToRemove != null) {
+                    cleanupChunk(chunkToRemove);
                 }
             }
 
             List<ChunkPosition> chunksToLoad = new ArrayList<>();
 
-            int lookAheadX = 0;
-            int lookAheadZ = 0;
-
-            if (Math.abs(playerMoveDirection.x) > 0.3f) {
-                lookAheadX = playerMoveDirection.x > 0 ? 2 : -2;
-            }
-
-            if (Math.abs(playerMoveDirection.z) > 0.3f) {
-                lookAheadZ = playerMoveDirection.z > 0 ? 2 : -2;
-            }
-
             for (int dx = -totalDistance; dx <= totalDistance; dx++) {
                 for (int dz = -totalDistance; dz <= totalDistance; dz++) {
                     int chunkX = currentCenterChunkX + dx;
                     int chunkZ = currentCenterChunkZ + dz;
                     ChunkPosition chunkPos = new ChunkPosition(chunkX, chunkZ);
 
-                    synchronized (chunkLock) {
-                        Chunk existingChunk = loadedChunks.get(chunkPos);
-                        if (existingChunk == null) {
-                            chunksToLoad.add(chunkPos);
-                        } else if (existingChunk.getChunkEntity() == null) {
-                            cleanupChunk(existingChunk);
-                            loadedChunks.remove(chunkPos);
-                            chunksToLoad.add(chunkPos);
-                        }
-                    }
-                }
-            }
-
-            for (int i = 1; i <= 3; i++) {
-                int aheadX = currentCenterChunkX + (lookAheadX * i);
-                int aheadZ = currentCenterChunkZ + (lookAheadZ * i);
-
-                for (int dx = -1; dx <= 1; dx++) {
-                    for (int dz = -1; dz <= 1; dz++) {
-                        ChunkPosition pos = new ChunkPosition(aheadX + dx, aheadZ + dz);
-                        if (!loadedChunks.containsKey(pos) && !chunksToLoad.contains(pos)) {
-                            chunksToLoad.add(pos);
-                        }
+                    if (!loadedChunks.containsKey(chunkPos) && !chunkLoadScheduler.isScheduled(chunkPos)) {
+                        chunksToLoad.add(chunkPos);
                     }
                 }
             }
 
             if (!chunksToLoad.isEmpty()) {
-                chunksToLoad.sort((pos1, pos2) -> {
-                    int dx1 = pos1.getX() - currentCenterChunkX;
-                    int dz1 = pos1.getZ() - currentCenterChunkZ;
-                    int dx2 = pos2.getX() - currentCenterChunkX;
-                    int dz2 = pos2.getZ() - currentCenterChunkZ;
-                    return Integer.compare((Math.abs(dx1) + Math.abs(dz1)),
-                            (Math.abs(dx2) + Math.abs(dz2)));
-                });
+                chunksToLoad.sort(Comparator.comparingDouble(chunkLoadPolicy::score));
 
                 int immediateCount = Math.min(4, chunksToLoad.size());
+                List<Chunk> toGenerate = new ArrayList<>();
                 for (int i = 0; i < immediateCount; i++) {
                     ChunkPosition pos = chunksToLoad.get(i);
-                    Chunk chunk = new Chunk(pos.getX(), pos.getZ(), world);
-                    synchronized (chunkLock) {
-                        loadedChunks.put(pos, chunk);
-                    }
-                    meshGenerationQueue.add(chunk);
-
-                    ChunkPosition[] neighbors = {
-                            new ChunkPosition(pos.getX() + 1, pos.getZ()),
-                            new ChunkPosition(pos.getX() - 1, pos.getZ()),
-                            new ChunkPosition(pos.getX(), pos.getZ() + 1),
-                            new ChunkPosition(pos.getX(), pos.getZ() - 1)
-                    };
-
-                    synchronized (chunkLock) {
-                        for (ChunkPosition neighborPos : neighbors) {
-                            Chunk neighbor = loadedChunks.get(neighborPos);
-                            if (neighbor != null) {
-                                world.getDirtyChunks().add(neighbor);
-                            }
-                        }
+                    Chunk chunk = new Chunk(pos.getX(), pos.getZ());
+                    if (!chunkCache.load(chunk) && !regionStore.load(chunk)) {
+                        toGenerate.add(chunk);
+                        continue;
                     }
+                    world.addChunk(chunk);
+                    markNeighborsDirty(pos.getX(), pos.getZ());
+                }
+                for (Chunk chunk : generateNow(toGenerate)) {
+                    world.addChunk(chunk);
+                    markNeighborsDirty(chunk.getChunkX(), chunk.getChunkZ());
                 }
                 chunksToLoad.subList(0, immediateCount).clear();
 
-                if (!chunksToLoad.isEmpty()) {
-                    final int MAX_CONCURRENT_LOADING = world.getRenderDistance();
-                    final List<ChunkPosition> currentBatch = chunksToLoad.subList(0,
-                            Math.min(MAX_CONCURRENT_LOADING, chunksToLoad.size()));
-
-                    for (ChunkPosition pos : currentBatch) {
-                        final int chunkX = pos.getX();
-                        final int chunkZ = pos.getZ();
-
-                        chunkGenerationExecutor.submit(() -> {
-                            try {
-                                Chunk chunk = new Chunk(chunkX, chunkZ, world);
-
-                                synchronized (chunkLock) {
-                                    loadedChunks.put(new ChunkPosition(chunkX, chunkZ), chunk);
-                                }
-
-                                meshGenerationQueue.add(chunk);
-                                GLFW.glfwPostEmptyEvent();
-
-                                ChunkPosition[] neighbors = {
-                                        new ChunkPosition(chunkX + 1, chunkZ),
-                                        new ChunkPosition(chunkX - 1, chunkZ),
-                                        new ChunkPosition(chunkX, chunkZ + 1),
-                                        new ChunkPosition(chunkX, chunkZ - 1)
-                                };
-
-                                synchronized (chunkLock) {
-                                    for (ChunkPosition neighborPos : neighbors) {
-                                        Chunk neighbor = loadedChunks.get(neighborPos);
-                                        if (neighbor != null) {
-                                            world.getDirtyChunks().add(neighbor);
-                                        }
-                                    }
-                                }
-                            } catch (Exception e) {
-                                e.printStackTrace();
-                            }
-                        });
-                    }
+                for (ChunkPosition pos : chunksToLoad) {
+                    chunkLoadScheduler.schedule(pos);
                 }
             }
 
+            integrateLoadedChunks();
             processDirtyChunks();
 
         } catch (Exception e) {
@@ -321,31 +301,295 @@ public class Scene {
         }
     }
 
-    private void processDirtyChunks() {
-        List<Chunk> dirtyChunks = new ArrayList<>(world.getDirtyChunks());
-        if (dirtyChunks.isEmpty()) {
-            return;
+    // Velocità orizzontale in blocchi al secondo, misurata tra due tick di update
+    private void updatePlayerVelocity(float playerX, float playerZ) {
+        long now = System.nanoTime();
+        if (lastPlayerSampleNanos != 0) {
+            float seconds = (now - lastPlayerSampleNanos) / 1_000_000_000f;
+            if (seconds > 0) {
+                playerVelocity.set(playerX - lastPlayerPosition.x, 0, playerZ - lastPlayerPosition.z).div(seconds);
+            }
+        }
+        lastPlayerPosition.set(playerX, 0, playerZ);
+        lastPlayerSampleNanos = now;
+    }
+
+    // Modifiche rimaste nel log dopo una chiusura non pulita: applicate ai chunk su disco prima di caricare il mondo
+    private void replayBlockLog() {
+        Map<ChunkPosition, Chunk> touched = new HashMap<>();
+        try {
+            long records = BlockChangeLog.replay(worldDirectory, (x, y, z, blockId) -> {
+                int chunkX = Math.floorDiv(x, Chunk.WIDTH);
+                int chunkZ = Math.floorDiv(z, Chunk.DEPTH);
+                Chunk chunk = touched.computeIfAbsent(new ChunkPosition(chunkX, chunkZ), pos -> {
+                    Chunk restored = new Chunk(pos.getX(), pos.getZ());
+                    if (!regionStore.load(restored)) {
+                        restored.generate();
+                    }
+                    return restored;
+                });
+                chunk.setBlockId(Math.floorMod(x, Chunk.WIDTH), y, Math.floorMod(z, Chunk.DEPTH), blockId);
+            });
+            if (records == 0) {
+                return;
+            }
+            for (Chunk chunk : touched.values()) {
+                if (regionStore.save(chunk) < 0) {
+                    // Il log resta su disco e verrà riletto al prossimo avvio
+                    return;
+                }
+            }
+            if (!regionStore.flush()) {
+                return;
+            }
+            BlockChangeLog.deleteSegments(worldDirectory);
+            Logger.info("Log dei blocchi riletto: " + records + " modifiche su " + touched.size() + " chunk");
+        } catch (IOException e) {
+            e.printStackTrace();
         }
+    }
 
-        int maxChunksToProcess = Math.min(dirtyChunks.size(), 3);
+    private void checkpointBlockLogIfDue() {
+        long now = System.currentTimeMillis();
+        long interval = GameConfig.getInstance().getBlockLogCheckpointSeconds() * 1000L;
+        if (blockLog != null && now - lastCheckpointMillis >= interval && blockLog.getAppendedSinceCheckpoint() > 0) {
+            blockLog.checkpoint(chunkSaveQueue);
+            lastCheckpointMillis = now;
+        }
+    }
 
-        for (int i = 0; i < maxChunksToProcess; i++) {
-            Chunk chunk = dirtyChunks.get(i);
-            if (chunk != null) {
-                chunk.buildMesh(world, this);
+    public ChunkSaveQueue getChunkSaveQueue() {
+        return chunkSaveQueue;
+    }
+
+    public ChunkVisibilityStats getVisibilityStats() {
+        return visibilityStats;
+    }
+
+    // Inserisce nel mondo i chunk generati dai worker; quelli usciti dal raggio nel frattempo vengono scartati
+    private void integrateLoadedChunks() {
+        Chunk chunk;
+        while ((chunk = chunkLoadScheduler.pollCompleted()) != null) {
+            ChunkPosition pos = new ChunkPosition(chunk.getChunkX(), chunk.getChunkZ());
+            if (!chunkLoadScheduler.isInRange(pos) || world.getLoadedChunks().containsKey(pos)) {
+                if (!world.getLoadedChunks().containsKey(pos)) {
+                    chunkCache.put(chunk);
+                }
                 world.getDirtyChunks().remove(chunk);
+                chunk.releaseResources();
+                continue;
             }
+            world.addChunk(chunk);
+            chunk.setDirty(true);
+            markNeighborsDirty(pos.getX(), pos.getZ());
         }
     }
 
-    public void registerChunkModel(String modelId, Mesh mesh) {
-        if (mesh == null)
+    private void markNeighborsDirty(int chunkX, int chunkZ) {
+        markDirtyIfLoaded(chunkX + 1, chunkZ);
+        markDirtyIfLoaded(chunkX - 1, chunkZ);
+        markDirtyIfLoaded(chunkX, chunkZ + 1);
+        markDirtyIfLoaded(chunkX, chunkZ - 1);
+    }
+
+    private void markDirtyIfLoaded(int chunkX, int chunkZ) {
+        Chunk neighbor = world.getChunk(chunkX, chunkZ);
+        if (neighbor != null) {
+            neighbor.setDirty(true);
+        }
+    }
+
+    private void processDirtyChunks() {
+        Iterator<Chunk> iterator = world.getDirtyChunks().iterator();
+        while (iterator.hasNext() && meshJobsInFlight.get() < maxMeshJobsInFlight) {
+            Chunk chunk = iterator.next();
+            if (chunk.isReleased() || world.getChunk(chunk.getChunkX(), chunk.getChunkZ()) != chunk) {
+                iterator.remove();
+                continue;
+            }
+            // Un solo job per chunk: se è già in meshing o upload resta nel set per il giro successivo
+            ChunkState previous = chunk.getState();
+            if ((previous != ChunkState.GENERATED && previous != ChunkState.READY)
+                    || !chunk.transition(previous, ChunkState.MESHING)) {
+                continue;
+            }
+            iterator.remove();
+            int sectionMask = chunk.takeDirtySections();
+            if (sectionMask != 0) {
+                submitMeshJob(chunk, sectionMask, previous);
+            } else {
+                chunk.transition(ChunkState.MESHING, previous);
+            }
+        }
+    }
+
+    private void submitMeshJob(Chunk chunk, int sectionMask, ChunkState previous) {
+        int revision = chunk.nextMeshRevision();
+        ChunkSnapshot snapshot = ChunkSnapshot.capture(chunk, world, sectionMask);
+        ChunkMesh.MeshingMode mode = ChunkMesh.getMeshingMode();
+
+        meshJobsInFlight.incrementAndGet();
+        meshExecutor.submit(() -> {
+            try {
+                // Solo le mesh complete con tutti i vicini presenti: le altre cambieranno a breve
+                boolean cacheable = sectionMask == Chunk.ALL_SECTIONS && snapshot.isComplete();
+                long contentHash = cacheable ? snapshot.contentHash() : 0;
+                MeshData[] data = cacheable ? meshCache.load(chunk.getChunkX(), chunk.getChunkZ(), mode, contentHash) : null;
+                if (data == null) {
+                    data = ChunkMesh.buildMeshData(snapshot, mode, sectionMask);
+                    if (cacheable) {
+                        meshCache.store(chunk.getChunkX(), chunk.getChunkZ(), mode, contentHash, data);
+                    }
+                }
+                PendingMesh pending = new PendingMesh(chunk, revision, sectionMask, data);
+                if (chunk.transition(ChunkState.MESHING, ChunkState.UPLOADING)) {
+                    pendingMeshUploads.add(pending);
+                    GLFW.glfwPostEmptyEvent();
+                } else {
+                    pending.free();
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+                if (chunk.transition(ChunkState.MESHING, previous)) {
+                    chunk.markSectionsDirty(sectionMask);
+                    World.markChunkDirty(chunk);
+                }
+            } finally {
+                snapshot.release();
+                meshJobsInFlight.decrementAndGet();
+            }
+        });
+    }
+
+    // Chiamato dall'input dopo una modifica del giocatore; il click viene cronometrato fino al frame che la mostra
+    public void requestPriorityRemesh(int blockX, int blockZ) {
+        priorityRemeshes.add(new PriorityRemesh(blockX, blockZ, System.nanoTime()));
+    }
+
+    // Ricostruisce subito solo le sezioni sporche del chunk modificato e dei vicini diretti
+    public void processPriorityRemeshes() {
+        PriorityRemesh edit;
+        while ((edit = priorityRemeshes.poll()) != null) {
+            int chunkX = Math.floorDiv(edit.blockX, Chunk.WIDTH);
+            int chunkZ = Math.floorDiv(edit.blockZ, Chunk.DEPTH);
+            rebuildDirtySections(world.getChunk(chunkX, chunkZ));
+            rebuildDirtySections(world.getChunk(chunkX - 1, chunkZ));
+            rebuildDirtySections(world.getChunk(chunkX + 1, chunkZ));
+            rebuildDirtySections(world.getChunk(chunkX, chunkZ - 1));
+            rebuildDirtySections(world.getChunk(chunkX, chunkZ + 1));
+            editsAwaitingFrame.add(edit.requestedAt);
+        }
+    }
+
+    // Chiamato dopo lo swap dei buffer: le modifiche servite in questo frame sono ora visibili
+    public void onFrameRendered() {
+        if (editsAwaitingFrame.isEmpty()) {
             return;
+        }
+        long now = System.nanoTime();
+        for (long requestedAt : editsAwaitingFrame) {
+            editLatency.record(now - requestedAt);
+        }
+        editsAwaitingFrame.clear();
+    }
+
+    public LatencyHistogram getEditLatency() {
+        return editLatency;
+    }
+
+    private void rebuildDirtySections(Chunk chunk) {
+        if (chunk != null && !chunk.isReleased()) {
+            chunk.rebuildDirtySections(world, this);
+        }
+    }
+
+    // Chiamato dal thread di rendering: carica almeno un risultato per frame, poi si ferma al budget
+    public void uploadPendingMeshes() {
+        GameConfig config = GameConfig.getInstance();
+        long deadline = System.nanoTime() + (long) (config.getMeshUploadBudgetMillis() * 1_000_000L);
+        long budgetBytes = config.getMeshUploadBudgetBytes();
+        long uploadedBytes = 0;
+
+        PendingMesh pending;
+        while ((pending = pendingMeshUploads.peek()) != null) {
+            int size = pending.getSizeBytes();
+            if (uploadedBytes > 0 && (uploadedBytes + size > budgetBytes || System.nanoTime() > deadline)) {
+                break;
+            }
+            pendingMeshUploads.poll();
+            uploadedBytes += size;
+
+            Chunk chunk = pending.chunk;
+            boolean applied = false;
+            for (int i = 0; i < Chunk.SECTION_COUNT; i++) {
+                if ((pending.sectionMask & (1 << i)) == 0) {
+                    continue;
+                }
+                MeshData data = pending.data[i];
+                if (!chunk.isSectionRevisionCurrent(i, pending.revision)) {
+                    if (data != null) {
+                        data.free();
+                    }
+                    continue;
+                }
+                chunk.applySectionMesh(i, pending.revision, data != null ? data.upload() : null);
+                applied = true;
+            }
+            if (applied) {
+                chunk.publishMeshes(this);
+            }
+            chunk.transition(ChunkState.UPLOADING, ChunkState.READY);
+        }
+    }
+
+    private static class PriorityRemesh {
+        final int blockX;
+        final int blockZ;
+        final long requestedAt;
+
+        PriorityRemesh(int blockX, int blockZ, long requestedAt) {
+            this.blockX = blockX;
+            this.blockZ = blockZ;
+            this.requestedAt = requestedAt;
+        }
+    }
+
+    private static class PendingMesh {
+        final Chunk chunk;
+        final int revision;
+        final int sectionMask;
+        final MeshData[] data;
+
+        PendingMesh(Chunk chunk, int revision, int sectionMask, MeshData[] data) {
+            this.chunk = chunk;
+            this.revision = revision;
+            this.sectionMask = sectionMask;
+            this.data = data;
+        }
+
+        int getSizeBytes() {
+            int size = 0;
+            for (MeshData section : data) {
+                if (section != null) {
+                    size += section.getSizeBytes();
+                }
+            }
+            return size;
+        }
+
+        void free() {
+            for (MeshData section : data) {
+                if (section != null) {
+                    section.free();
+                }
+            }
+        }
+    }
+
+    public void registerChunkModel(String modelId, List<Mesh> meshes) {
         Model existingModel = modelMap.get(modelId);
         if (existingModel == null) {
-            List<Mesh> meshes = new ArrayList<>();
-            meshes.add(mesh);
-            Model model = new Model(modelId, meshes);
+            Model model = new Model(modelId, new ArrayList<>(meshes));
             modelMap.put(modelId, model);
         }
     }
@@ -359,23 +603,78 @@ public class Scene {
         }
     }
 
-    public void updateChunkMesh(String chunkId, Mesh newMesh) {
+    public void updateChunkMesh(String chunkId, List<Mesh> meshes) {
         Entity entity = entityMap.get(chunkId);
         if (entity != null) {
             Model chunkModel = modelMap.get(entity.getModelId());
             if (chunkModel != null) {
                 chunkModel.getMeshList().clear();
-                chunkModel.getMeshList().add(newMesh);
+                chunkModel.getMeshList().addAll(meshes);
             }
         }
     }
 
     public void cleanup() {
+        if (editLatency.getCount() > 0) {
+            Logger.info("Edit -> frame latency: " + editLatency.summary());
+        }
+        Logger.info("Chunk cache: " + chunkCache.summary());
+        Logger.info("Mesh cache: " + meshCache.summary());
+        if (visibilityStats.getEnteredCount() > 0) {
+            Logger.info(String.format("Chunk pronti all'entrata in vista: %.1f%% su %d",
+                    visibilityStats.getReadyPercent(), visibilityStats.getEnteredCount()));
+        }
         modelMap.clear();
         entityMap.clear();
 
-        if (chunkGenerationExecutor != null) {
-            chunkGenerationExecutor.shutdown();
+        if (chunkLoadScheduler != null) {
+            chunkLoadScheduler.shutdown();
+        }
+        if (generationPipeline != null) {
+            Logger.info("Generazione: " + generationPipeline.summary());
+            generationPipeline.shutdown();
+        }
+        if (meshExecutor != null) {
+            // I job di meshing ancora in corso scrivono nella cache delle mesh: finiscono prima che si chiuda
+            meshExecutor.shutdown();
+            try {
+                if (!meshExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                    meshExecutor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                meshExecutor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // Le modifiche dei chunk ancora caricati finiscono su disco prima di chiudere le regioni
+        for (Chunk chunk : world.getLoadedChunks().values()) {
+            if (chunk.isUnsaved()) {
+                chunkSaveQueue.markModified(chunk);
+            }
+        }
+        boolean saved = chunkSaveQueue.close();
+        Logger.info("Salvataggio chunk: " + chunkSaveQueue.summary());
+        if (blockLog != null) {
+            blockLog.close();
+            Logger.info("Log dei blocchi: " + blockLog.summary());
+            // Solo se tutti i chunk sono su disco e sincronizzati il log non serve più
+            if (saved && regionStore.flush()) {
+                try {
+                    BlockChangeLog.deleteSegments(worldDirectory);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            } else {
+                Logger.info("Salvataggio incompleto: il log dei blocchi verrà riletto al prossimo avvio");
+            }
+        }
+        regionStore.close();
+        meshCache.close();
+
+        PendingMesh pending;
+        while ((pending = pendingMeshUploads.poll()) != null) {
+            pending.free();
         }
     }
 
@@ -383,6 +682,9 @@ public class Scene {
         if (chunk == null)
             return;
 
+        // Da qui in poi i job di meshing ancora in volo per questo chunk vengono scartati
+        chunk.markUnloading();
+
         try {
             int chunkX = chunk.getChunkX();
             int chunkZ = chunk.getChunkZ();
@@ -418,10 +720,16 @@ public class Scene {
                 modelMap.remove(modelId);
             }
 
-            meshGenerationQueue.remove(chunk);
-
             world.getDirtyChunks().remove(chunk);
 
+            if (chunk.getSections() != null && chunkCache != null) {
+                byte[] data = ChunkCodec.encode(chunk);
+                if (chunk.isUnsaved()) {
+                    chunk.markSaved();
+                    chunkSaveQueue.submit(chunk.getChunkX(), chunk.getChunkZ(), data);
+                }
+                chunkCache.put(chunk.getChunkX(), chunk.getChunkZ(), data);
+            }
             chunk.releaseResources();
 
         } catch (Exception e) {
@@ -429,135 +737,52 @@ public class Scene {
         }
     }
 
-    public void forceReloadChunk(int chunkX, int chunkZ) {
-        ChunkPosition pos = new ChunkPosition(chunkX, chunkZ);
-        Map<ChunkPosition, Chunk> loadedChunks = world.getLoadedChunks();
-
-        synchronized (chunkLock) {
-            Chunk existingChunk = loadedChunks.get(pos);
-            if (existingChunk != null) {
-                cleanupChunk(existingChunk);
-                loadedChunks.remove(pos);
-            }
-
-            String entityId = "chunk_" + chunkX + "_" + chunkZ;
-            String modelId = "chunk_model_" + chunkX + "_" + chunkZ;
-
-            if (entityMap.containsKey(entityId)) {
-                removeEntity(entityId);
-            }
-
-            if (modelMap.containsKey(modelId)) {
-                Model phantom = modelMap.remove(modelId);
-                if (phantom != null) {
-                    for (Mesh mesh : phantom.getMeshList()) {
-                        if (mesh != null)
-                            mesh.cleanup();
-                    }
-                }
-            }
-
-            Chunk newChunk = new Chunk(chunkX, chunkZ, world);
-            loadedChunks.put(pos, newChunk);
-
-            newChunk.buildMesh(world, this);
-        }
-    }
-
-    public void validateAllChunks() {
-        Logger.info("Validazione di tutti i chunk caricati...");
-        Map<ChunkPosition, Chunk> loadedChunks = world.getLoadedChunks();
-        List<ChunkPosition> ghostChunks = new ArrayList<>();
-        List<ChunkPosition> missingChunks = new ArrayList<>();
-
-        int renderDistance = world.getRenderDistance();
-
-        synchronized (chunkLock) {
-            for (Map.Entry<ChunkPosition, Chunk> entry : loadedChunks.entrySet()) {
-                ChunkPosition pos = entry.getKey();
-                Chunk chunk = entry.getValue();
-
-                if (chunk.getChunkEntity() == null) {
-                    ghostChunks.add(pos);
-                } else {
-                    String entityId = chunk.getChunkEntity().getId();
-                    if (!entityMap.containsKey(entityId)) {
-                        ghostChunks.add(pos);
-                    }
-                }
-            }
-
-            for (int dx = -renderDistance; dx <= renderDistance; dx++) {
-                for (int dz = -renderDistance; dz <= renderDistance; dz++) {
-                    ChunkPosition pos = new ChunkPosition(currentCenterChunkX + dx, currentCenterChunkZ + dz);
-                    if (!loadedChunks.containsKey(pos)) {
-                        missingChunks.add(pos);
-                    }
-                }
-            }
-
-            if (!ghostChunks.isEmpty()) {
-                for (ChunkPosition pos : ghostChunks) {
-                    forceReloadChunk(pos.getX(), pos.getZ());
-                }
-            }
-
-            if (!missingChunks.isEmpty()) {
-                for (ChunkPosition pos : missingChunks) {
-                    Chunk newChunk = new Chunk(pos.getX(), pos.getZ(), world);
-                    loadedChunks.put(pos, newChunk);
-                    meshGenerationQueue.add(newChunk);
-                }
-            }
-        }
-    }
-
     public void resetAllChunks() {
         Logger.info("RESET COMPLETO DEI CHUNK IN CORSO...");
 
-        synchronized (chunkLock) {
-            Map<ChunkPosition, Chunk> loadedChunks = world.getLoadedChunks();
-            Set<ChunkPosition> positions = new HashSet<>(loadedChunks.keySet());
+        Map<ChunkPosition, Chunk> loadedChunks = world.getLoadedChunks();
+        Set<ChunkPosition> positions = new HashSet<>(loadedChunks.keySet());
 
-            for (ChunkPosition pos : positions) {
-                Chunk chunk = loadedChunks.get(pos);
+        for (ChunkPosition pos : positions) {
+            Chunk chunk = world.removeChunk(pos);
+            if (chunk != null) {
                 cleanupChunk(chunk);
-                loadedChunks.remove(pos);
             }
+        }
 
-            meshGenerationQueue.clear();
-            world.getDirtyChunks().clear();
+        world.getDirtyChunks().clear();
 
-            int renderDistance = world.getRenderDistance();
-            List<ChunkPosition> chunksToReload = new ArrayList<>();
+        int renderDistance = world.getRenderDistance();
+        List<ChunkPosition> chunksToReload = new ArrayList<>();
 
-            for (int dx = -renderDistance; dx <= renderDistance; dx++) {
-                for (int dz = -renderDistance; dz <= renderDistance; dz++) {
-                    int chunkX = currentCenterChunkX + dx;
-                    int chunkZ = currentCenterChunkZ + dz;
-                    chunksToReload.add(new ChunkPosition(chunkX, chunkZ));
-                }
+        for (int dx = -renderDistance; dx <= renderDistance; dx++) {
+            for (int dz = -renderDistance; dz <= renderDistance; dz++) {
+                int chunkX = currentCenterChunkX + dx;
+                int chunkZ = currentCenterChunkZ + dz;
+                chunksToReload.add(new ChunkPosition(chunkX, chunkZ));
             }
+        }
 
-            chunksToReload.sort((p1, p2) -> {
-                double dist1 = Math.sqrt(Math.pow(p1.getX() - currentCenterChunkX, 2) +
-                        Math.pow(p1.getZ() - currentCenterChunkZ, 2));
-                double dist2 = Math.sqrt(Math.pow(p2.getX() - currentCenterChunkX, 2) +
-                        Math.pow(p2.getZ() - currentCenterChunkZ, 2));
-                return Double.compare(dist1, dist2);
-            });
-
-            for (int i = 0; i < Math.min(9, chunksToReload.size()); i++) {
-                ChunkPosition pos = chunksToReload.get(i);
-                Chunk chunk = new Chunk(pos.getX(), pos.getZ(), world);
-                loadedChunks.put(pos, chunk);
-                chunk.buildMesh(world, this);
-            }
+        chunksToReload.sort((p1, p2) -> {
+            double dist1 = Math.sqrt(Math.pow(p1.getX() - currentCenterChunkX, 2) +
+                    Math.pow(p1.getZ() - currentCenterChunkZ, 2));
+            double dist2 = Math.sqrt(Math.pow(p2.getX() - currentCenterChunkX, 2) +
+                    Math.pow(p2.getZ() - currentCenterChunkZ, 2));
+            return Double.compare(dist1, dist2);
+        });
+
+        List<Chunk> nearest = new ArrayList<>();
+        for (int i = 0; i < Math.min(9, chunksToReload.size()); i++) {
+            ChunkPosition pos = chunksToReload.get(i);
+            nearest.add(new Chunk(pos.getX(), pos.getZ()));
+        }
+        for (Chunk chunk : generateNow(nearest)) {
+            world.addChunk(chunk);
+            chunk.buildMesh(world, this);
+        }
 
-            for (int i = 9; i < chunksToReload.size(); i++) {
-                ChunkPosition pos = chunksToReload.get(i);
-                meshGenerationQueue.add(new Chunk(pos.getX(), pos.getZ(), world));
-            }
+        for (int i = 9; i < chunksToReload.size(); i++) {
+            chunkLoadScheduler.schedule(chunksToReload.get(i));
         }
     }
 
@@ -566,6 +791,7 @@ public class Scene {
 
         int renderDistance = world.getRenderDistance();
         Map<ChunkPosition, Chunk> loadedChunks = world.getLoadedChunks();
+        List<Chunk> missing = new ArrayList<>();
 
         for (int dx = -renderDistance; dx <= renderDistance; dx++) {
             for (int dz = -renderDistance; dz <= renderDistance; dz++) {
@@ -574,12 +800,34 @@ public class Scene {
                 ChunkPosition pos = new ChunkPosition(chunkX, chunkZ);
 
                 if (!loadedChunks.containsKey(pos)) {
-                    Chunk chunk = new Chunk(chunkX, chunkZ, world);
-                    loadedChunks.put(pos, chunk);
-                    chunk.buildMesh(world, this);
+                    missing.add(new Chunk(chunkX, chunkZ));
+                }
+            }
+        }
+        for (Chunk chunk : generateNow(missing)) {
+            world.addChunk(chunk);
+            chunk.buildMesh(world, this);
+        }
+    }
+
+    // Genera in parallelo sulla pipeline e aspetta; restituisce i chunk generati nell'ordine dato
+    private List<Chunk> generateNow(List<Chunk> chunks) {
+        List<CompletableFuture<Chunk>> pending = new ArrayList<>(chunks.size());
+        for (Chunk chunk : chunks) {
+            pending.add(generationPipeline.generate(chunk));
+        }
+        List<Chunk> generated = new ArrayList<>(chunks.size());
+        for (CompletableFuture<Chunk> future : pending) {
+            try {
+                Chunk chunk = future.join();
+                if (chunk != null) {
+                    generated.add(chunk);
                 }
+            } catch (CompletionException e) {
+                e.printStackTrace();
             }
         }
+        return generated;
     }
 
     public static void addModel(Model model) {
@@ -4,6 +4,7 @@ import org.joml.Vector3f;
 
 import world.World;
 import world.blocks.Block;
+import world.chunks.Heightmap;
 import world.physics.Gravity;
 
 public class Player {
@@ -101,6 +102,10 @@ public class Player {
         int blockY = (int) Math.floor(feetY);
         int blockZ = (int) Math.floor(position.z);
 
+        // Con i piedi sopra la superficie di tutte le colonne vicine non serve sondare i blocchi
+        if (isAboveSurface(world, blockX, blockY, blockZ)) {
+            return;
+        }
         
         Block blockBelow = world.getBlock(blockX, blockY, blockZ);
         if (blockBelow != null && blockBelow.isSolid()) {
@@ -125,6 +130,17 @@ public class Player {
         }
     }
 
+    private boolean isAboveSurface(World world, int x, int y, int z) {
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dz = -1; dz <= 1; dz++) {
+                if (world.getHighestBlockY(x + dx, z + dz, Heightmap.Type.SOLID) >= y) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
     private boolean checkBlockUnderFeet(World world, int x, int y, int z, Vector3f position) {
         Block block = world.getBlock(x, y, z);
         if (block != null && block.isSolid()) {
@@ -0,0 +1,51 @@
+package utils;
+
+/*
+ * Istogramma a bucket logaritmici (potenze di 2 in microsecondi, da 1 µs a ~1 min).
+ * Registrazione e letture avvengono sullo stesso thread; i percentili
+ * restituiscono il limite superiore del bucket, quindi sono approssimati per eccesso.
+ */
+public class LatencyHistogram {
+    private static final int BUCKETS = 27;
+
+    private final long[] counts = new long[BUCKETS];
+    private long total;
+    private long maxNanos;
+
+    public void record(long nanos) {
+        long micros = Math.max(1, nanos / 1_000L);
+        int bucket = Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(micros));
+        counts[bucket]++;
+        total++;
+        maxNanos = Math.max(maxNanos, nanos);
+    }
+
+    public long getCount() {
+        return total;
+    }
+
+    public float getMaxMillis() {
+        return maxNanos / 1_000_000f;
+    }
+
+    // p in [0, 1]
+    public float getPercentileMillis(double p) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(p * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min((1L << (i + 1)) / 1_000f, getMaxMillis());
+            }
+        }
+        return getMaxMillis();
+    }
+
+    public String summary() {
+        return String.format("p50 %.2f ms p99 %.2f ms max %.2f ms (%d)",
+                getPercentileMillis(0.5), getPercentileMillis(0.99), getMaxMillis(), total);
+    }
+}
@@ -6,24 +6,38 @@ import java.util.Queue;
 import java.util.Set;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Consumer;
 
 import world.blocks.Block;
+import world.blocks.BlockRegistry;
 import world.chunks.Chunk;
+import world.chunks.ChunkGrid;
+import world.chunks.ChunkLoadScheduler;
 import world.chunks.ChunkPosition;
+import world.chunks.ChunkSection;
+import world.chunks.Heightmap;
 import world.events.WorldEvent;
 import world.events.WorldEvent.BlockChangeEvent;
 import world.events.WorldEvent.ChunkLoadEvent;
+import world.generation.GenerationPipeline;
 import world.physics.Gravity;
 
 public class World {
     private Map<ChunkPosition, Chunk> loadedChunks;
+    private Map<ChunkPosition, Chunk> loadedChunksView;
+    private final ChunkGrid chunkGrid;
     private List<Consumer<WorldEvent>> eventListeners;
+    private ChunkLoadScheduler.ChunkSource chunkSource;
+    private GenerationPipeline generationPipeline;
     private static final Set<Chunk> dirtyChunks = ConcurrentHashMap.newKeySet();
     private static final int renderDistance = 8;
+    // Scene tiene caricati i chunk fino a renderDistance + BUFFER_DISTANCE + 1
+    private static final int CHUNK_GRID_MARGIN = 3;
     private Queue<BlockPosition> fluidUpdateQueue = new ArrayDeque<>();
     private Set<BlockPosition> queuedFluidBlocks = new HashSet<>();
     private long lastFluidUpdateTime = 0;
@@ -32,9 +46,21 @@ public class World {
 
     public World() {
         this.loadedChunks = new ConcurrentHashMap<>();
+        this.loadedChunksView = Collections.unmodifiableMap(loadedChunks);
+        this.chunkGrid = new ChunkGrid(renderDistance + CHUNK_GRID_MARGIN);
         this.eventListeners = new CopyOnWriteArrayList<>();
     }
     
+    // Dati salvati da provare prima di generare i chunk iniziali
+    public void setChunkSource(ChunkLoadScheduler.ChunkSource chunkSource) {
+        this.chunkSource = chunkSource;
+    }
+
+    // Se presente, i chunk iniziali da generare vengono generati in parallelo
+    public void setGenerationPipeline(GenerationPipeline generationPipeline) {
+        this.generationPipeline = generationPipeline;
+    }
+
     public void addEventListener(Consumer<WorldEvent> listener) {
         eventListeners.add(listener);
     }
@@ -52,21 +78,35 @@ public class World {
     public void generateInitialWorld(float centerX, float centerZ) {
         int centerChunkX = (int) Math.floor(centerX / (Chunk.WIDTH * Block.BLOCK_SIZE));
         int centerChunkZ = (int) Math.floor(centerZ / (Chunk.DEPTH * Block.BLOCK_SIZE));
+        recenter(centerChunkX, centerChunkZ);
 
+        List<CompletableFuture<Chunk>> pending = new ArrayList<>();
         for (int dx = -renderDistance; dx <= renderDistance; dx++) {
             for (int dz = -renderDistance; dz <= renderDistance; dz++) {
                 int chunkX = centerChunkX + dx;
                 int chunkZ = centerChunkZ + dz;
 
-                ChunkPosition chunkPos = new ChunkPosition(chunkX, chunkZ);
-
-                if (!loadedChunks.containsKey(chunkPos)) {
-                    Chunk chunk = new Chunk(chunkX, chunkZ, this);
-                    loadedChunks.put(chunkPos, chunk);
-                    fireEvent(new ChunkLoadEvent(chunk));
+                if (getChunk(chunkX, chunkZ) == null) {
+                    Chunk chunk = new Chunk(chunkX, chunkZ);
+                    if (chunkSource != null && chunkSource.load(chunk)) {
+                        pending.add(CompletableFuture.completedFuture(chunk));
+                    } else if (generationPipeline != null) {
+                        pending.add(generationPipeline.generate(chunk));
+                    } else {
+                        chunk.generate();
+                        pending.add(CompletableFuture.completedFuture(chunk));
+                    }
                 }
             }
         }
+        // Inseriti nello stesso ordine in cui sono stati richiesti
+        for (CompletableFuture<Chunk> future : pending) {
+            Chunk chunk = future.join();
+            if (chunk != null) {
+                addChunk(chunk);
+                fireEvent(new ChunkLoadEvent(chunk));
+            }
+        }
     }
 
     public Block getBlock(int x, int y, int z) {
@@ -84,6 +124,26 @@ public class World {
         return chunk.getBlock(localX, y, localZ);
     }
 
+    public int getBlockId(int x, int y, int z) {
+        Chunk chunk = getChunk(Math.floorDiv(x, Chunk.WIDTH), Math.floorDiv(z, Chunk.DEPTH));
+        if (chunk == null) {
+            return BlockRegistry.AIR_ID;
+        }
+        return chunk.getBlockId(Math.floorMod(x, Chunk.WIDTH), y, Math.floorMod(z, Chunk.DEPTH));
+    }
+
+    public int getHighestBlockY(int x, int z, Heightmap.Type type) {
+        Chunk chunk = getChunk(Math.floorDiv(x, Chunk.WIDTH), Math.floorDiv(z, Chunk.DEPTH));
+        if (chunk == null) {
+            return -1;
+        }
+        return chunk.getHighestBlockY(Math.floorMod(x, Chunk.WIDTH), Math.floorMod(z, Chunk.DEPTH), type);
+    }
+
+    public int getSurfaceHeight(int x, int z) {
+        return getHighestBlockY(x, z, Heightmap.Type.SOLID) + 1;
+    }
+
     public void setBlock(int x, int y, int z, Block block) {
         int chunkX = Math.floorDiv(x, Chunk.WIDTH);
         int chunkZ = Math.floorDiv(z, Chunk.DEPTH);
@@ -95,16 +155,42 @@ public class World {
             
             Block oldBlock = chunk.getBlock(localX, y, localZ);
             chunk.setBlock(localX, y, localZ, block);
+            markChunkDirty(chunk);
+            markBorderSectionDirty(chunkX, chunkZ, localX, y, localZ);
             
             fireEvent(new BlockChangeEvent(x, y, z, oldBlock, block));
         }
 
         // Se abbiamo aggiunto un blocco d'acqua, aggiungiamolo alla coda
-        if (block != null && block.getType() == Block.BlockType.WATER) {
+        if (block != null && block.isFluid()) {
             addToFluidQueue(x, y, z);
         }
     }
 
+    // Un blocco sul bordo del chunk cambia solo la sezione adiacente del vicino
+    private void markBorderSectionDirty(int chunkX, int chunkZ, int localX, int y, int localZ) {
+        if (y < 0 || y >= Chunk.HEIGHT) {
+            return;
+        }
+        if (localX == 0) {
+            markSectionDirty(getChunk(chunkX - 1, chunkZ), y);
+        } else if (localX == Chunk.WIDTH - 1) {
+            markSectionDirty(getChunk(chunkX + 1, chunkZ), y);
+        }
+        if (localZ == 0) {
+            markSectionDirty(getChunk(chunkX, chunkZ - 1), y);
+        } else if (localZ == Chunk.DEPTH - 1) {
+            markSectionDirty(getChunk(chunkX, chunkZ + 1), y);
+        }
+    }
+
+    private void markSectionDirty(Chunk chunk, int y) {
+        if (chunk != null) {
+            chunk.markSectionsDirty(1 << (y / ChunkSection.SIZE));
+            markChunkDirty(chunk);
+        }
+    }
+
     public void setDirty(Chunk chunk) {
         dirtyChunks.add(chunk);
     }
@@ -118,12 +204,35 @@ public class World {
     }
 
     public Map<ChunkPosition, Chunk> getLoadedChunks() {
-        return loadedChunks;
+        return loadedChunksView;
     }
 
     public Chunk getChunk(int chunkX, int chunkZ) {
-        ChunkPosition position = new ChunkPosition(chunkX, chunkZ);
-        return loadedChunks.get(position);
+        int version = chunkGrid.getVersion();
+        Chunk chunk = chunkGrid.get(chunkX, chunkZ);
+        if (chunk != null || chunkGrid.isAuthoritative(chunkX, chunkZ, version)) {
+            return chunk;
+        }
+        return loadedChunks.get(new ChunkPosition(chunkX, chunkZ));
+    }
+
+    public void addChunk(Chunk chunk) {
+        loadedChunks.put(new ChunkPosition(chunk.getChunkX(), chunk.getChunkZ()), chunk);
+        chunkGrid.put(chunk);
+    }
+
+    public Chunk removeChunk(ChunkPosition position) {
+        Chunk removed = loadedChunks.remove(position);
+        chunkGrid.remove(position.getX(), position.getZ());
+        return removed;
+    }
+
+    public boolean isChunkLoaded(int chunkX, int chunkZ) {
+        return getChunk(chunkX, chunkZ) != null;
+    }
+
+    public void recenter(int centerChunkX, int centerChunkZ) {
+        chunkGrid.recenter(centerChunkX, centerChunkZ, loadedChunks);
     }
 
     public int getRenderDistance() {
@@ -164,15 +273,29 @@ public class World {
     private void scanPlayerAreaForFluidBlocks() {
         // Scansiona solo un piccolo raggio attorno al giocatore
         for (Chunk chunk : getActiveChunks()) {
-            for (int x = 0; x < Chunk.WIDTH; x++) {
-                for (int y = 0; y < Chunk.HEIGHT; y++) {
+            Heightmap fluidHeights = chunk.getHeightmap(Heightmap.Type.FLUID);
+            int fluidTop = fluidHeights.getMaxHeight();
+
+            for (int sectionIndex = 0; sectionIndex * ChunkSection.SIZE < fluidTop; sectionIndex++) {
+                ChunkSection section = chunk.getSection(sectionIndex);
+                // Salta le sezioni vuote o senza fluidi nella palette
+                if (section == null || !section.containsFluid()) {
+                    continue;
+                }
+
+                int baseY = sectionIndex * ChunkSection.SIZE;
+                for (int y = 0; y < ChunkSection.SIZE; y++) {
                     for (int z = 0; z < Chunk.DEPTH; z++) {
-                        int worldX = chunk.getChunkX() * Chunk.WIDTH + x;
-                        int worldZ = chunk.getChunkZ() * Chunk.DEPTH + z;
-                        
-                        Block block = getBlock(worldX, y, worldZ);
-                        if (block != null && block.getType() == Block.BlockType.WATER) {
-                            addToFluidQueue(worldX, y, worldZ);
+                        for (int x = 0; x < Chunk.WIDTH; x++) {
+                            // Sopra l'heightmap dei fluidi la colonna non contiene acqua
+                            if (baseY + y >= fluidHeights.getHeight(x, z)) {
+                                continue;
+                            }
+                            if (BlockRegistry.isFluid(section.getBlockId(x, y, z))) {
+                                int worldX = chunk.getChunkX() * Chunk.WIDTH + x;
+                                int worldZ = chunk.getChunkZ() * Chunk.DEPTH + z;
+                                addToFluidQueue(worldX, baseY + y, worldZ);
+                            }
                         }
                     }
                 }
@@ -194,13 +317,9 @@ public class World {
         // Considera solo i chunks più vicini al giocatore
         int scanRadius = 2; // Raggio ridotto per migliori performance
         
-        // Assumiamo che il centro della scena sia vicino al giocatore
-        int centerX = loadedChunks.keySet().stream()
-                .mapToInt(ChunkPosition::getX)
-                .sum() / Math.max(1, loadedChunks.size());
-        int centerZ = loadedChunks.keySet().stream()
-                .mapToInt(ChunkPosition::getZ)
-                .sum() / Math.max(1, loadedChunks.size());
+        // Il centro della griglia segue il chunk del giocatore
+        int centerX = chunkGrid.getCenterX();
+        int centerZ = chunkGrid.getCenterZ();
         
         for (int dx = -scanRadius; dx <= scanRadius; dx++) {
             for (int dz = -scanRadius; dz <= scanRadius; dz++) {
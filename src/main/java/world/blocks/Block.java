@@ -10,7 +10,8 @@ import world.chunks.Chunk;
 
 public class Block {
     public static final float BLOCK_SIZE = 1.0f;
-    private BlockType type;
+    private final BlockType type;
+    private final int id;
 
     public enum BlockType {
         AIR,
@@ -50,20 +51,29 @@ public class Block {
         }
     }
 
-    public Block(BlockType type) {
+    Block(BlockType type, int id) {
         this.type = type;
+        this.id = id;
     }
 
     public BlockType getType() {
         return type;
     }
 
+    public int getId() {
+        return id;
+    }
+
     public boolean isSolid() {
-        return type != BlockType.AIR && type != BlockType.WATER; 
+        return BlockRegistry.isSolid(id);
     }
 
     public boolean isOpaque() {
-        return type != BlockType.AIR && type != BlockType.LEAVES;
+        return BlockRegistry.isOpaque(id);
+    }
+
+    public boolean isFluid() {
+        return BlockRegistry.isFluid(id);
     }
 
     public static boolean shouldRenderFace(World world, int x, int y, int z, Face face) {
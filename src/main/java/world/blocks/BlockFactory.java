@@ -1,19 +1,17 @@
 package world.blocks;
 
 public class BlockFactory {
-    private static BlockFactory instance;
+    // Creata con la classe: getInstance() si può chiamare da qualsiasi thread
+    private static final BlockFactory instance = new BlockFactory();
     
     private BlockFactory() {}
     
     public static BlockFactory getInstance() {
-        if (instance == null) {
-            instance = new BlockFactory();
-        }
         return instance;
     }
     
     public Block createBlock(Block.BlockType type) {
-        return new Block(type);
+        return BlockRegistry.get(type);
     }
 
     public Block createAirBlock() {
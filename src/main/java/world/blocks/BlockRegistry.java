@@ -0,0 +1,107 @@
+package world.blocks;
+
+import world.blocks.Block.BlockType;
+import world.blocks.Block.Face;
+
+public final class BlockRegistry {
+    public static final int AIR_ID = 0;
+    public static final int FACE_COUNT = 6;
+
+    private static final String[] TEXTURE_NAMES = {
+            "default", "grass_top", "grass_side", "dirt", "stone", "wood", "leaves", "water"
+    };
+
+    private static final Block[] BLOCKS;
+    private static final boolean[] OPAQUE;
+    private static final boolean[] SOLID;
+    private static final boolean[] FLUID;
+    private static final int[] FACE_TEXTURES;
+
+    static {
+        BlockType[] types = BlockType.values();
+        BLOCKS = new Block[types.length];
+        OPAQUE = new boolean[types.length];
+        SOLID = new boolean[types.length];
+        FLUID = new boolean[types.length];
+        FACE_TEXTURES = new int[types.length * FACE_COUNT];
+
+        for (BlockType type : types) {
+            int id = type.ordinal();
+            BLOCKS[id] = new Block(type, id);
+            OPAQUE[id] = type != BlockType.AIR && type != BlockType.LEAVES;
+            SOLID[id] = type != BlockType.AIR && type != BlockType.WATER;
+            FLUID[id] = type == BlockType.WATER;
+            for (Face face : Face.values()) {
+                FACE_TEXTURES[id * FACE_COUNT + face.ordinal()] = textureIndex(resolveTextureName(type, face));
+            }
+        }
+    }
+
+    private BlockRegistry() {
+    }
+
+    private static String resolveTextureName(BlockType type, Face face) {
+        return switch (type) {
+            case GRASS -> face == Face.TOP ? "grass_top" : face == Face.BOTTOM ? "dirt" : "grass_side";
+            case DIRT -> "dirt";
+            case STONE -> "stone";
+            case WATER -> "water";
+            case WOOD -> "wood";
+            case LEAVES -> "leaves";
+            default -> "default";
+        };
+    }
+
+    private static int textureIndex(String name) {
+        for (int i = 0; i < TEXTURE_NAMES.length; i++) {
+            if (TEXTURE_NAMES[i].equals(name)) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    public static Block get(BlockType type) {
+        return BLOCKS[type.ordinal()];
+    }
+
+    public static Block byId(int id) {
+        return BLOCKS[id];
+    }
+
+    public static int getId(Block block) {
+        return block == null ? AIR_ID : block.getId();
+    }
+
+    public static int getId(BlockType type) {
+        return type.ordinal();
+    }
+
+    public static int size() {
+        return BLOCKS.length;
+    }
+
+    public static boolean isOpaque(int id) {
+        return OPAQUE[id];
+    }
+
+    public static boolean isSolid(int id) {
+        return SOLID[id];
+    }
+
+    public static boolean isFluid(int id) {
+        return FLUID[id];
+    }
+
+    public static int getFaceTexture(int id, Face face) {
+        return FACE_TEXTURES[id * FACE_COUNT + face.ordinal()];
+    }
+
+    public static int getTextureCount() {
+        return TEXTURE_NAMES.length;
+    }
+
+    public static String getTextureName(int textureIndex) {
+        return TEXTURE_NAMES[textureIndex];
+    }
+}
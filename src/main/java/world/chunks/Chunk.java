@@ -1,45 +1,173 @@
 package world.chunks;
 
+import rendering.meshes.Mesh;
+import rendering.meshes.MeshData;
 import scene.Entity;
 import scene.Scene;
 import world.World;
 import world.blocks.Block;
+import world.blocks.BlockRegistry;
+import world.generation.HeightRegion;
 import world.generation.WorldGenerator;
 
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
 import org.joml.Vector4f;
 
 public class Chunk {
     public static final int WIDTH = 16;
     public static final int HEIGHT = 256;
     public static final int DEPTH = 16;
+    public static final int SECTION_COUNT = HEIGHT / ChunkSection.SIZE;
+    public static final int ALL_SECTIONS = (1 << SECTION_COUNT) - 1;
 
     private final int chunkX;
     private final int chunkZ;
-    private Block[][][] blocks;
+    private ChunkSection[] sections;
+    private final Heightmap[] heightmaps;
     private boolean isDirty;
     private ChunkMesh chunkMesh;
     private Entity chunkEntity;
+    private final AtomicInteger dirtySections = new AtomicInteger();
+    private final int[] appliedSectionRevisions = new int[SECTION_COUNT];
+    private int requestedMeshRevision;
+    private final AtomicReference<ChunkState> state = new AtomicReference<>(ChunkState.QUEUED);
+    private volatile boolean unsaved;
+    // Tra setBlockId e takeSaveSnapshot(), che gira sul thread di salvataggio
+    private final Object sectionLock = new Object();
 
-    public Chunk(int chunkX, int chunkZ, World world) {
+    // Chunk vuoto in stato QUEUED: il terreno viene creato più tardi da generate()
+    public Chunk(int chunkX, int chunkZ) {
         this.chunkX = chunkX;
         this.chunkZ = chunkZ;
-        this.blocks = new Block[WIDTH][HEIGHT][DEPTH];
+        this.sections = new ChunkSection[SECTION_COUNT];
+        this.heightmaps = new Heightmap[Heightmap.Type.values().length];
+        for (Heightmap.Type type : Heightmap.Type.values()) {
+            heightmaps[type.ordinal()] = new Heightmap(type);
+        }
         this.isDirty = true;
+    }
+
+    // false se il chunk era già stato preso da un altro thread o scaricato nel frattempo
+    public boolean generate() {
+        if (!beginGeneration()) {
+            return false;
+        }
         generateTerrain();
+        return finishGeneration();
+    }
+
+    // Per la generazione a stadi (GenerationPipeline): begin prende il chunk, finish lo pubblica
+    public boolean beginGeneration() {
+        return transition(ChunkState.QUEUED, ChunkState.GENERATING);
+    }
+
+    public boolean finishGeneration() {
+        if (state.get() != ChunkState.GENERATING) {
+            return false;
+        }
+        optimizeSections();
+        setDirty(true);
+        return transition(ChunkState.GENERATING, ChunkState.GENERATED);
+    }
+
+    // Alternativa a generate() per le sezioni già pronte (cache o disco); restored viene adottato senza copie
+    public boolean restore(ChunkSection[] restored) {
+        if (!transition(ChunkState.QUEUED, ChunkState.GENERATING)) {
+            return false;
+        }
+        System.arraycopy(restored, 0, sections, 0, SECTION_COUNT);
+        for (Heightmap heightmap : heightmaps) {
+            heightmap.rebuild(this);
+        }
+        setDirty(true);
+        return transition(ChunkState.GENERATING, ChunkState.GENERATED);
+    }
+
+    public ChunkState getState() {
+        return state.get();
+    }
+
+    public boolean transition(ChunkState expected, ChunkState next) {
+        return state.compareAndSet(expected, next);
+    }
+
+    public boolean hasTerrain() {
+        ChunkState current = state.get();
+        return current != ChunkState.QUEUED && current != ChunkState.GENERATING && current != ChunkState.UNLOADING;
+    }
+
+    public void markUnloading() {
+        state.set(ChunkState.UNLOADING);
+    }
+
+    // Modificato dopo la generazione e non ancora scritto su disco
+    public boolean isUnsaved() {
+        return unsaved;
+    }
+
+    public void markSaved() {
+        unsaved = false;
     }
 
+    // Gli stessi stadi della pipeline, in sequenza sul thread corrente
     private void generateTerrain() {
-        WorldGenerator generator = new WorldGenerator();
-        generator.generateBaseTerrain(this);
-        generator.generateTrees(this);
-        this.setDirty(true);
+        WorldGenerator generator = WorldGenerator.forCurrentThread();
+        HeightRegion region = generator.region(chunkX, chunkZ);
+        generator.fillColumns(this, region.getChunkHeights(0, 0));
+        generator.generateFeatures(this, region);
     }
 
+    // Percorso sincrono: cattura, meshing e upload sul thread corrente (che deve avere il contesto GL)
     public void buildMesh(World world, Scene scene) {
+        markSectionsDirty(ALL_SECTIONS);
+        rebuildDirtySections(world, scene);
+    }
+
+    public void rebuildDirtySections(World world, Scene scene) {
+        if (!hasTerrain()) {
+            return;
+        }
+        int sectionMask = takeDirtySections();
+        if (sectionMask == 0) {
+            return;
+        }
+        int revision = nextMeshRevision();
+        ChunkSnapshot snapshot = ChunkSnapshot.capture(this, world, sectionMask);
+        MeshData[] data = ChunkMesh.buildMeshData(snapshot, ChunkMesh.getMeshingMode(), sectionMask);
+        snapshot.release();
+
+        for (int i = 0; i < SECTION_COUNT; i++) {
+            if ((sectionMask & (1 << i)) != 0) {
+                applySectionMesh(i, revision, data[i] != null ? data[i].upload() : null);
+            }
+        }
+        publishMeshes(scene);
+        transition(ChunkState.GENERATED, ChunkState.READY);
+    }
+
+    public int nextMeshRevision() {
+        return ++requestedMeshRevision;
+    }
+
+    // Scarta i risultati più vecchi di una mesh già applicata alla stessa sezione
+    public boolean isSectionRevisionCurrent(int sectionIndex, int revision) {
+        return revision > appliedSectionRevisions[sectionIndex] && !isReleased();
+    }
+
+    public void applySectionMesh(int sectionIndex, int revision, Mesh mesh) {
+        appliedSectionRevisions[sectionIndex] = revision;
+        if (chunkMesh == null) {
+            chunkMesh = new ChunkMesh();
+        }
+        chunkMesh.setSectionMesh(sectionIndex, mesh);
+    }
+
+    public void publishMeshes(Scene scene) {
         if (chunkMesh == null) {
             chunkMesh = new ChunkMesh();
         }
-        chunkMesh.buildMesh(this, world);
 
         String modelId = "chunk_model_" + chunkX + "_" + chunkZ;
         if (chunkEntity == null) {
@@ -52,45 +180,141 @@ public class Chunk {
             chunkEntity.updateModelMatrix();
 
             if (!scene.getModelMap().containsKey(modelId)) {
-                scene.registerChunkModel(modelId, chunkMesh.getMesh());
+                scene.registerChunkModel(modelId, chunkMesh.getMeshes());
             }
             scene.addChunkEntity(chunkEntity);
         } else if (scene != null) {
-            scene.updateChunkMesh(chunkEntity.getId(), chunkMesh.getMesh());
+            scene.updateChunkMesh(chunkEntity.getId(), chunkMesh.getMeshes());
+        }
+        if (dirtySections.get() == 0) {
+            resetDirtyFlag();
         }
-        resetDirtyFlag();
     }
 
-    public void rebuildFullMesh(World world, Scene scene) {
-        if (chunkMesh == null) {
-            chunkMesh = new ChunkMesh();
+    public void markSectionsDirty(int sectionMask) {
+        dirtySections.accumulateAndGet(sectionMask, (current, added) -> current | added);
+        isDirty = true;
+    }
+
+    public int takeDirtySections() {
+        return dirtySections.getAndSet(0);
+    }
+
+    // Una modifica in y cambia la visibilità delle facce anche nelle sezioni sopra e sotto se è sul bordo
+    public static int sectionMaskForY(int y) {
+        int mask = 1 << (y / ChunkSection.SIZE);
+        if (y > 0) {
+            mask |= 1 << ((y - 1) / ChunkSection.SIZE);
         }
-        chunkMesh.buildMesh(this, world);
+        if (y < HEIGHT - 1) {
+            mask |= 1 << ((y + 1) / ChunkSection.SIZE);
+        }
+        return mask;
+    }
 
-        if (chunkEntity == null) {
-            String modelId = "chunk_model_" + chunkX + "_" + chunkZ;
-            String entityId = "chunk_" + chunkX + "_" + chunkZ;
-            chunkEntity = new Entity(entityId, modelId, new Vector4f(0, 0, 1, 1));
-            chunkEntity.setPosition(
-                    chunkX * WIDTH * Block.BLOCK_SIZE,
-                    0,
-                    chunkZ * DEPTH * Block.BLOCK_SIZE);
-            scene.addChunkEntity(chunkEntity);
+    public void setBlock(int x, int y, int z, Block block) {
+        setBlockId(x, y, z, BlockRegistry.getId(block));
+    }
+
+    public void setBlockId(int x, int y, int z, int blockId) {
+        if (!isValidPosition(x, y, z)) {
+            return;
         }
 
-        scene.updateChunkMesh(chunkEntity.getId(), chunkMesh.getMesh());
-        setDirty(false);
+        int sectionIndex = y / ChunkSection.SIZE;
+        synchronized (sectionLock) {
+            ChunkSection[] current = sections;
+            if (current == null) {
+                return;
+            }
+            ChunkSection section = current[sectionIndex];
+            if (section == null) {
+                if (blockId == BlockRegistry.AIR_ID) {
+                    return;
+                }
+                section = new ChunkSection();
+                current[sectionIndex] = section;
+            } else if (section.isShared() && section.getBlockId(x, y % ChunkSection.SIZE, z) != blockId) {
+                // La sezione è in un salvataggio: si modifica una copia
+                section = section.copy();
+                current[sectionIndex] = section;
+            }
+
+            section.setBlockId(x, y % ChunkSection.SIZE, z, blockId);
+            if (section.isEmpty()) {
+                current[sectionIndex] = null;
+            }
+            if (hasTerrain()) {
+                unsaved = true;
+            }
+        }
+        for (Heightmap heightmap : heightmaps) {
+            heightmap.onBlockChanged(this, x, y, z, blockId);
+        }
+        markSectionsDirty(sectionMaskForY(y));
     }
 
-    public void setBlock(int x, int y, int z, Block block) {
-        if (isValidPosition(x, y, z)) {
-            blocks[x][y][z] = block;
-            isDirty = true;
+    /*
+     * Sezioni da salvare su un altro thread, senza copiarle: restano condivise con il chunk e
+     * setBlockId copia una sezione condivisa prima di modificarla, al più una volta per salvataggio.
+     * Azzera unsaved insieme alla presa, così le modifiche successive tornano a segnarlo.
+     */
+    public ChunkSection[] takeSaveSnapshot() {
+        synchronized (sectionLock) {
+            ChunkSection[] current = sections;
+            if (current == null) {
+                return null;
+            }
+            for (ChunkSection section : current) {
+                if (section != null) {
+                    section.share();
+                }
+            }
+            unsaved = false;
+            return current.clone();
+        }
+    }
+
+    // Per scritture in blocco direttamente nelle sezioni; al termine chiamare finishBulkWrite()
+    public ChunkSection getOrCreateSection(int sectionIndex) {
+        ChunkSection section = sections[sectionIndex];
+        if (section == null) {
+            section = new ChunkSection();
+            sections[sectionIndex] = section;
+        }
+        return section;
+    }
+
+    // Toglie le sezioni rimaste vuote e ricalcola le heightmap dopo getOrCreateSection()
+    public void finishBulkWrite() {
+        for (int i = 0; i < SECTION_COUNT; i++) {
+            if (sections[i] != null && sections[i].isEmpty()) {
+                sections[i] = null;
+            }
+        }
+        for (Heightmap heightmap : heightmaps) {
+            heightmap.rebuild(this);
+        }
+        markSectionsDirty(ALL_SECTIONS);
+    }
+
+    public void optimizeSections() {
+        for (int i = 0; i < SECTION_COUNT; i++) {
+            ChunkSection section = sections[i];
+            if (section == null) {
+                continue;
+            }
+            if (section.isEmpty()) {
+                sections[i] = null;
+            } else if (!section.isShared()) {
+                section.optimize();
+            }
         }
     }
 
     public void setDirty(boolean dirty) {
         if (dirty) {
+            markSectionsDirty(ALL_SECTIONS);
             World.markChunkDirty(this);
         }
         this.isDirty = dirty;
@@ -98,9 +322,20 @@ public class Chunk {
     
 
     public Block getBlock(int x, int y, int z) {
-        return isValidPosition(x, y, z) ? blocks[x][y][z] : null;
+        int blockId = getBlockId(x, y, z);
+        return blockId == BlockRegistry.AIR_ID ? null : BlockRegistry.byId(blockId);
+    }
+
+    public int getBlockId(int x, int y, int z) {
+        ChunkSection[] current = sections;
+        if (!isValidPosition(x, y, z) || current == null) {
+            return BlockRegistry.AIR_ID;
+        }
+        ChunkSection section = current[y / ChunkSection.SIZE];
+        return section == null ? BlockRegistry.AIR_ID : section.getBlockId(x, y % ChunkSection.SIZE, z);
     }
 
+
     private boolean isValidPosition(int x, int y, int z) {
         return x >= 0 && x < WIDTH &&
                 y >= 0 && y < HEIGHT &&
@@ -127,8 +362,27 @@ public class Chunk {
         return chunkZ;
     }
 
-    public Block[][][] getBlocks() {
-        return blocks;
+    public Heightmap getHeightmap(Heightmap.Type type) {
+        return heightmaps[type.ordinal()];
+    }
+
+    public int getHighestBlockY(int x, int z, Heightmap.Type type) {
+        return heightmaps[type.ordinal()].getHeight(x, z) - 1;
+    }
+
+    public int getMaxBlockHeight() {
+        return Math.max(
+                heightmaps[Heightmap.Type.SOLID.ordinal()].getMaxHeight(),
+                heightmaps[Heightmap.Type.FLUID.ordinal()].getMaxHeight());
+    }
+
+    public ChunkSection[] getSections() {
+        return sections;
+    }
+
+    public ChunkSection getSection(int sectionIndex) {
+        ChunkSection[] current = sections;
+        return current == null ? null : current[sectionIndex];
     }
 
     public ChunkMesh getChunkMesh() {
@@ -139,7 +393,12 @@ public class Chunk {
         this.chunkEntity = chunkEntity;
     }
 
+    public boolean isReleased() {
+        return state.get() == ChunkState.UNLOADING;
+    }
+
     public void releaseResources() {
+        markUnloading();
         chunkEntity = null;
         
         if (chunkMesh != null) {
@@ -147,7 +406,9 @@ public class Chunk {
             chunkMesh = null;
         }
         
-        blocks = null;
+        synchronized (sectionLock) {
+            sections = null;
+        }
     }
 
     public void cleanup() {
@@ -0,0 +1,101 @@
+package world.chunks;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/*
+ * Griglia toroidale di chunk centrata sul giocatore: lo slot di un chunk è
+ * (floorMod(x, size), floorMod(z, size)), quindi spostare il centro non richiede
+ * di copiare l'intera griglia ma solo di aggiornare gli slot che cambiano chunk.
+ * Le letture sono lock-free; put/remove/recenter sono serializzati.
+ */
+public class ChunkGrid {
+    private final int radius;
+    private final int size;
+    private final AtomicReferenceArray<Chunk> slots;
+
+    private volatile int centerX;
+    private volatile int centerZ;
+    private volatile int version;
+
+    public ChunkGrid(int radius) {
+        this.radius = radius;
+        this.size = radius * 2 + 1;
+        this.slots = new AtomicReferenceArray<>(size * size);
+    }
+
+    public boolean isInWindow(int chunkX, int chunkZ) {
+        return Math.abs(chunkX - centerX) <= radius && Math.abs(chunkZ - centerZ) <= radius;
+    }
+
+    public Chunk get(int chunkX, int chunkZ) {
+        Chunk chunk = slots.get(slotIndex(chunkX, chunkZ));
+        if (chunk != null && chunk.getChunkX() == chunkX && chunk.getChunkZ() == chunkZ) {
+            return chunk;
+        }
+        return null;
+    }
+
+    // Un null dalla griglia è definitivo solo se nessun recenter è avvenuto durante la lettura
+    public boolean isAuthoritative(int chunkX, int chunkZ, int expectedVersion) {
+        return (expectedVersion & 1) == 0 && isInWindow(chunkX, chunkZ) && expectedVersion == version;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public synchronized void put(Chunk chunk) {
+        if (isInWindow(chunk.getChunkX(), chunk.getChunkZ())) {
+            slots.set(slotIndex(chunk.getChunkX(), chunk.getChunkZ()), chunk);
+        }
+    }
+
+    public synchronized void remove(int chunkX, int chunkZ) {
+        int index = slotIndex(chunkX, chunkZ);
+        Chunk chunk = slots.get(index);
+        if (chunk != null && chunk.getChunkX() == chunkX && chunk.getChunkZ() == chunkZ) {
+            slots.set(index, null);
+        }
+    }
+
+    public synchronized void recenter(int newCenterX, int newCenterZ, Map<ChunkPosition, Chunk> chunks) {
+        if (newCenterX == centerX && newCenterZ == centerZ) {
+            return;
+        }
+
+        version++;
+        centerX = newCenterX;
+        centerZ = newCenterZ;
+
+        for (int dx = -radius; dx <= radius; dx++) {
+            for (int dz = -radius; dz <= radius; dz++) {
+                int chunkX = newCenterX + dx;
+                int chunkZ = newCenterZ + dz;
+                int index = slotIndex(chunkX, chunkZ);
+                Chunk current = slots.get(index);
+                if (current != null && current.getChunkX() == chunkX && current.getChunkZ() == chunkZ) {
+                    continue;
+                }
+                slots.set(index, chunks.get(new ChunkPosition(chunkX, chunkZ)));
+            }
+        }
+        version++;
+    }
+
+    private int slotIndex(int chunkX, int chunkZ) {
+        return Math.floorMod(chunkZ, size) * size + Math.floorMod(chunkX, size);
+    }
+
+    public int getCenterX() {
+        return centerX;
+    }
+
+    public int getCenterZ() {
+        return centerZ;
+    }
+
+    public int getRadius() {
+        return radius;
+    }
+}
@@ -0,0 +1,230 @@
+package world.chunks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+import world.generation.GenerationPipeline;
+
+/*
+ * Coda di generazione dei chunk ordinata per distanza dal centro.
+ * Ogni richiesta è un chunk vuoto in stato QUEUED. Quando il centro cambia le
+ * richieste vengono riordinate e quelle fuori raggio passano a UNLOADING; un worker
+ * genera solo se vince la transizione QUEUED -> GENERATING, quindi un chunk
+ * uscito dalla distanza non viene mai generato. I chunk pronti restano in
+ * pollCompleted() finché il thread principale non li inserisce nel mondo:
+ * solo allora il posto torna libero, così i chunk in volo sono limitati.
+ * Con una GenerationPipeline i worker fanno solo la lettura dei dati salvati e passano
+ * la generazione alla pipeline senza aspettarla.
+ */
+public class ChunkLoadScheduler {
+    private final PriorityBlockingQueue<LoadTicket> queue = new PriorityBlockingQueue<>();
+    private final Map<ChunkPosition, Chunk> scheduled = new ConcurrentHashMap<>();
+    private final Queue<Chunk> completed = new ConcurrentLinkedQueue<>();
+    private final Semaphore inFlight;
+    private final Thread[] workers;
+    private final AtomicLong droppedTickets = new AtomicLong();
+    private volatile boolean running = true;
+
+    private volatile int centerX;
+    private volatile int centerZ;
+    private volatile int keepDistance = Integer.MAX_VALUE;
+    private Prioritizer prioritizer = this::distance;
+    private volatile ChunkSource source;
+    private volatile GenerationPipeline pipeline;
+
+    // Punteggio più basso = caricato prima. Chiamato solo dal thread principale
+    public interface Prioritizer {
+        float score(ChunkPosition position);
+    }
+
+    // Riempie un chunk QUEUED con dati già esistenti; false se non ne ha e va generato
+    public interface ChunkSource {
+        boolean load(Chunk chunk);
+    }
+
+    public ChunkLoadScheduler(int workerCount, int maxInFlight) {
+        this.inFlight = new Semaphore(Math.max(1, maxInFlight));
+        this.workers = new Thread[Math.max(1, workerCount)];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Thread(this::runWorker, "chunk-loader-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    // Chiamato dal thread principale quando il chunk centrale cambia
+    public void recenter(int centerX, int centerZ, int keepDistance) {
+        this.centerX = centerX;
+        this.centerZ = centerZ;
+        this.keepDistance = keepDistance;
+        reprioritize();
+    }
+
+    // Ricalcola i punteggi delle richieste in coda (la camera può essere girata o il giocatore accelerato)
+    public void reprioritize() {
+        List<LoadTicket> tickets = new ArrayList<>(queue.size());
+        queue.drainTo(tickets);
+        for (LoadTicket ticket : tickets) {
+            if (isInRange(ticket.position)) {
+                queue.add(new LoadTicket(ticket.chunk, ticket.position, prioritizer.score(ticket.position)));
+            } else {
+                drop(ticket);
+            }
+        }
+    }
+
+    public void setPrioritizer(Prioritizer prioritizer) {
+        this.prioritizer = prioritizer;
+    }
+
+    public void setChunkSource(ChunkSource source) {
+        this.source = source;
+    }
+
+    public void setGenerationPipeline(GenerationPipeline pipeline) {
+        this.pipeline = pipeline;
+    }
+
+    // Ignora le posizioni già in coda o in generazione
+    public boolean schedule(ChunkPosition position) {
+        if (!isInRange(position)) {
+            return false;
+        }
+        Chunk chunk = new Chunk(position.getX(), position.getZ());
+        if (scheduled.putIfAbsent(position, chunk) != null) {
+            return false;
+        }
+        queue.add(new LoadTicket(chunk, position, prioritizer.score(position)));
+        return true;
+    }
+
+    public boolean isScheduled(ChunkPosition position) {
+        return scheduled.containsKey(position);
+    }
+
+    // Il chiamante deve poi inserire il chunk nel mondo o scartarlo; in entrambi i casi il posto si libera
+    public Chunk pollCompleted() {
+        Chunk chunk = completed.poll();
+        if (chunk != null) {
+            scheduled.remove(new ChunkPosition(chunk.getChunkX(), chunk.getChunkZ()), chunk);
+            inFlight.release();
+        }
+        return chunk;
+    }
+
+    public boolean isInRange(ChunkPosition position) {
+        return Math.abs(position.getX() - centerX) <= keepDistance
+                && Math.abs(position.getZ() - centerZ) <= keepDistance;
+    }
+
+    private float distance(ChunkPosition position) {
+        int dx = position.getX() - centerX;
+        int dz = position.getZ() - centerZ;
+        return dx * dx + dz * dz;
+    }
+
+    private void drop(LoadTicket ticket) {
+        ticket.chunk.markUnloading();
+        scheduled.remove(ticket.position, ticket.chunk);
+        droppedTickets.incrementAndGet();
+    }
+
+    private void runWorker() {
+        while (running) {
+            try {
+                inFlight.acquire();
+                LoadTicket ticket;
+                try {
+                    ticket = queue.take();
+                } catch (InterruptedException e) {
+                    inFlight.release();
+                    throw e;
+                }
+
+                if (!isInRange(ticket.position)) {
+                    drop(ticket);
+                    inFlight.release();
+                    continue;
+                }
+
+                try {
+                    ChunkSource current = source;
+                    boolean loaded = current != null && current.load(ticket.chunk);
+                    GenerationPipeline currentPipeline = pipeline;
+                    if (!loaded && currentPipeline != null) {
+                        currentPipeline.generate(ticket.chunk).whenComplete((chunk, error) -> {
+                            if (error != null) {
+                                error.printStackTrace();
+                            }
+                            if (chunk != null && running) {
+                                completed.add(chunk);
+                            } else {
+                                drop(ticket);
+                                inFlight.release();
+                            }
+                        });
+                    } else if (loaded || ticket.chunk.generate()) {
+                        completed.add(ticket.chunk);
+                    } else {
+                        drop(ticket);
+                        inFlight.release();
+                    }
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    drop(ticket);
+                    inFlight.release();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    public int getQueuedCount() {
+        return queue.size();
+    }
+
+    public long getDroppedTickets() {
+        return droppedTickets.get();
+    }
+
+    public int getWorkerCount() {
+        return workers.length;
+    }
+
+    public void shutdown() {
+        running = false;
+        queue.clear();
+        scheduled.values().forEach(Chunk::markUnloading);
+        scheduled.clear();
+        completed.clear();
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+    }
+
+    private static class LoadTicket implements Comparable<LoadTicket> {
+        final Chunk chunk;
+        final ChunkPosition position;
+        final float priority;
+
+        LoadTicket(Chunk chunk, ChunkPosition position, float priority) {
+            this.chunk = chunk;
+            this.position = position;
+            this.priority = priority;
+        }
+
+        @Override
+        public int compareTo(LoadTicket other) {
+            return Float.compare(priority, other.priority);
+        }
+    }
+}
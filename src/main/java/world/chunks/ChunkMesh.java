@@ -3,270 +3,330 @@ package world.chunks;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.joml.Vector4f;
-
 import rendering.meshes.Mesh;
+import rendering.meshes.MeshBuilder;
+import rendering.meshes.MeshData;
 import scene.Scene;
-import world.World;
 import world.blocks.Block;
+import world.blocks.BlockRegistry;
 
 public class ChunkMesh {
+    public enum MeshingMode {
+        NAIVE, GREEDY
+    }
+
+    private static final Block.Face[] FACES = Block.Face.values();
+    private static final ThreadLocal<MeshBuilder> BUILDERS = ThreadLocal.withInitial(MeshBuilder::new);
+    // Maschera di una fetta: 0 = nessuna faccia, altrimenti indice texture + 1
+    private static final ThreadLocal<int[]> MASKS = ThreadLocal
+            .withInitial(() -> new int[Math.max(Chunk.WIDTH, Chunk.DEPTH) * ChunkSection.SIZE]);
+
+    private static volatile MeshingMode meshingMode = MeshingMode.NAIVE;
+
+    // Una mesh per sezione 16x16x16, null se la sezione non ha facce visibili
+    private final Mesh[] sectionMeshes = new Mesh[Chunk.SECTION_COUNT];
 
-    private Mesh mesh;
+    public static MeshingMode getMeshingMode() {
+        return meshingMode;
+    }
+
+    public static void setMeshingMode(MeshingMode mode) {
+        meshingMode = mode;
+    }
+
+    public List<Mesh> getMeshes() {
+        List<Mesh> meshes = new ArrayList<>();
+        for (Mesh mesh : sectionMeshes) {
+            if (mesh != null) {
+                meshes.add(mesh);
+            }
+        }
+        return meshes;
+    }
+
+    public void setSectionMesh(int sectionIndex, Mesh newMesh) {
+        Mesh old = sectionMeshes[sectionIndex];
+        if (old != null) {
+            old.cleanup();
+        }
+        sectionMeshes[sectionIndex] = newMesh;
+    }
+
+    /*
+     * Costruisce le sezioni indicate da sectionMask; le sezioni senza facce restano
+     * null. Nessuna chiamata GL: sicuro da eseguire su un worker.
+     */
+    public static MeshData[] buildMeshData(ChunkSnapshot snapshot, MeshingMode mode, int sectionMask) {
+        MeshBuilder builder = BUILDERS.get();
+        MeshData[] result = new MeshData[Chunk.SECTION_COUNT];
+        for (int i = 0; i < Chunk.SECTION_COUNT; i++) {
+            if ((sectionMask & (1 << i)) == 0) {
+                continue;
+            }
+            buildGeometry(snapshot, builder, mode, i);
+            if (builder.getVertexCount() > 0) {
+                result[i] = builder.buildData();
+            }
+        }
+        builder.reset();
+        return result;
+    }
 
-    public Mesh getMesh() {
-        return mesh;
+    public static void buildGeometry(ChunkSnapshot snapshot, MeshBuilder builder, MeshingMode mode,
+            int sectionIndex) {
+        builder.reset();
+        int yStart = sectionIndex * ChunkSection.SIZE;
+        int yEnd = Math.min(yStart + ChunkSection.SIZE, snapshot.getMaxHeight());
+        if (yStart >= yEnd || snapshot.isSectionEmpty(sectionIndex)) {
+            return;
+        }
+        if (mode == MeshingMode.GREEDY) {
+            buildGreedy(snapshot, builder, yStart, yEnd);
+        } else {
+            buildNaive(snapshot, builder, yStart, yEnd);
+        }
     }
 
-    public void buildMesh(Chunk chunk, World world) {
-        List<Float> positions = new ArrayList<>();
-        List<Float> textureCoords = new ArrayList<>();
-        List<Integer> indices = new ArrayList<>();
-
-        int indexCount = 0;
-
-        for (int x = 0; x < Chunk.WIDTH; x++) {
-            for (int y = 0; y < Chunk.HEIGHT; y++) {
-                for (int z = 0; z < Chunk.DEPTH; z++) {
-                    Block block = chunk.getBlock(x, y, z);
-                    
-                    if (block != null && block.getType() != Block.BlockType.AIR) {
-                        int worldX = chunk.getChunkX() * Chunk.WIDTH + x;
-                        int worldZ = chunk.getChunkZ() * Chunk.DEPTH + z;
-                        
-                        for (Block.Face face : Block.Face.values()) {
-                            int adjX = worldX + face.getOffsetX();
-                            int adjY = y + face.getOffsetY();
-                            int adjZ = worldZ + face.getOffsetZ();
-                            
-                            Block adjacent = world.getBlock(adjX, adjY, adjZ);
-                            if (adjacent == null || !adjacent.isOpaque()) {
-                                indexCount = addFaceToMesh(
-                                    positions, textureCoords, indices,
-                                    x, y, z, indexCount, face, block.getType()
-                                );
+    private static void buildNaive(ChunkSnapshot snapshot, MeshBuilder builder, int yStart, int yEnd) {
+        for (int y = yStart; y < yEnd; y++) {
+            for (int z = 0; z < Chunk.DEPTH; z++) {
+                for (int x = 0; x < Chunk.WIDTH; x++) {
+                    int blockId = snapshot.getBlockId(x, y, z);
+
+                    if (blockId != BlockRegistry.AIR_ID) {
+                        for (Block.Face face : FACES) {
+                            if (isFaceVisible(snapshot, x, y, z, face)) {
+                                addQuad(builder, face, x, y, z, 1, 1,
+                                        BlockRegistry.getFaceTexture(blockId, face));
                             }
                         }
                     }
                 }
             }
         }
+    }
 
-        float[] posArray = new float[positions.size()];
-        float[] texArray = new float[textureCoords.size()];
-        int[] indArray = new int[indices.size()];
+    /*
+     * Greedy meshing: per ogni direzione e ogni fetta perpendicolare si costruisce
+     * una maschera delle facce visibili e si fondono i rettangoli con la stessa
+     * texture. Gli assi (u, v) della fetta sono quelli usati da addQuad per le
+     * dimensioni (w, h) della faccia; le facce non attraversano i confini di sezione.
+     */
+    private static void buildGreedy(ChunkSnapshot snapshot, MeshBuilder builder, int yStart, int yEnd) {
+        int height = yEnd - yStart;
+        int[] mask = MASKS.get();
 
-        for (int i = 0; i < positions.size(); i++) {
-            posArray[i] = positions.get(i);
+        for (Block.Face face : FACES) {
+            switch (face) {
+                case TOP:
+                case BOTTOM:
+                    for (int y = yStart; y < yEnd; y++) {
+                        boolean any = false;
+                        for (int z = 0; z < Chunk.DEPTH; z++) {
+                            for (int x = 0; x < Chunk.WIDTH; x++) {
+                                int value = maskValue(snapshot, x, y, z, face);
+                                mask[z * Chunk.WIDTH + x] = value;
+                                any |= value != 0;
+                            }
+                        }
+                        if (any) {
+                            mergeSlice(builder, mask, Chunk.WIDTH, Chunk.DEPTH, face, y, 0);
+                        }
+                    }
+                    break;
+                case FRONT:
+                case BACK:
+                    for (int z = 0; z < Chunk.DEPTH; z++) {
+                        boolean any = false;
+                        for (int v = 0; v < height; v++) {
+                            for (int x = 0; x < Chunk.WIDTH; x++) {
+                                int value = maskValue(snapshot, x, yStart + v, z, face);
+                                mask[v * Chunk.WIDTH + x] = value;
+                                any |= value != 0;
+                            }
+                        }
+                        if (any) {
+                            mergeSlice(builder, mask, Chunk.WIDTH, height, face, z, yStart);
+                        }
+                    }
+                    break;
+                case LEFT:
+                case RIGHT:
+                    for (int x = 0; x < Chunk.WIDTH; x++) {
+                        boolean any = false;
+                        for (int v = 0; v < height; v++) {
+                            for (int z = 0; z < Chunk.DEPTH; z++) {
+                                int value = maskValue(snapshot, x, yStart + v, z, face);
+                                mask[v * Chunk.DEPTH + z] = value;
+                                any |= value != 0;
+                            }
+                        }
+                        if (any) {
+                            mergeSlice(builder, mask, Chunk.DEPTH, height, face, x, yStart);
+                        }
+                    }
+                    break;
+            }
         }
+    }
 
-        for (int i = 0; i < textureCoords.size(); i++) {
-            texArray[i] = textureCoords.get(i);
+    private static int maskValue(ChunkSnapshot snapshot, int x, int y, int z, Block.Face face) {
+        int blockId = snapshot.getBlockId(x, y, z);
+        if (blockId == BlockRegistry.AIR_ID || !isFaceVisible(snapshot, x, y, z, face)) {
+            return 0;
         }
+        return BlockRegistry.getFaceTexture(blockId, face) + 1;
+    }
 
-        for (int i = 0; i < indices.size(); i++) {
-            indArray[i] = indices.get(i);
-        }
+    private static void mergeSlice(MeshBuilder builder, int[] mask, int uSize, int vSize, Block.Face face,
+            int depth, int yOffset) {
+        for (int v = 0; v < vSize; v++) {
+            for (int u = 0; u < uSize; u++) {
+                int value = mask[v * uSize + u];
+                if (value == 0) {
+                    continue;
+                }
+
+                int w = 1;
+                while (u + w < uSize && mask[v * uSize + u + w] == value) {
+                    w++;
+                }
 
-        if (mesh != null) {
-            mesh.cleanup();
+                int h = 1;
+                grow:
+                while (v + h < vSize) {
+                    for (int k = 0; k < w; k++) {
+                        if (mask[(v + h) * uSize + u + k] != value) {
+                            break grow;
+                        }
+                    }
+                    h++;
+                }
+
+                for (int dv = 0; dv < h; dv++) {
+                    for (int du = 0; du < w; du++) {
+                        mask[(v + dv) * uSize + u + du] = 0;
+                    }
+                }
+
+                switch (face) {
+                    case TOP, BOTTOM -> addQuad(builder, face, u, depth, v, w, h, value - 1);
+                    case FRONT, BACK -> addQuad(builder, face, u, yOffset + v, depth, w, h, value - 1);
+                    case LEFT, RIGHT -> addQuad(builder, face, depth, yOffset + v, u, w, h, value - 1);
+                }
+                u += w - 1;
+            }
         }
+    }
 
-        mesh = new Mesh(posArray, texArray, indArray);
+    private static boolean isFaceVisible(ChunkSnapshot snapshot, int x, int y, int z, Block.Face face) {
+        return !BlockRegistry.isOpaque(
+                snapshot.getBlockId(x + face.getOffsetX(), y + face.getOffsetY(), z + face.getOffsetZ()));
     }
 
-    private int addFaceToMesh(
-            List<Float> positions, List<Float> textureCoords, List<Integer> indices,
-            int x, int y, int z, int indexStart, Block.Face face, Block.BlockType blockType) {
+    /*
+     * Formato del vertice (un int): x 5 bit, y 9 bit, z 5 bit, faccia 3 bit,
+     * tile dell'atlas 5+5 bit. Le coordinate texture non vengono salvate:
+     * lo shader le ricava dalla posizione e dalla faccia, ripetendo il tile.
+     */
+    private static final int Y_SHIFT = 5;
+    private static final int Z_SHIFT = 14;
+    private static final int FACE_SHIFT = 19;
+    private static final int TILE_X_SHIFT = 22;
+    private static final int TILE_Y_SHIFT = 27;
+    private static final int TILE_MASK = 31;
 
-        float blockSize = Block.BLOCK_SIZE;
+    public static int packVertex(int x, int y, int z, Block.Face face, int tileX, int tileY) {
+        return x
+                | y << Y_SHIFT
+                | z << Z_SHIFT
+                | face.ordinal() << FACE_SHIFT
+                | (tileX & TILE_MASK) << TILE_X_SHIFT
+                | (tileY & TILE_MASK) << TILE_Y_SHIFT;
+    }
+
+    /*
+     * Emette una faccia di w x h blocchi. Gli assi di (w, h) sono: TOP/BOTTOM (x, z),
+     * FRONT/BACK (x, y), LEFT/RIGHT (z, y).
+     */
+    private static void addQuad(MeshBuilder builder, Block.Face face, int x, int y, int z, int w, int h,
+            int textureIndex) {
+        builder.ensureQuadCapacity(1);
 
-        float x1 = x * blockSize;
-        float y1 = y * blockSize;
-        float z1 = z * blockSize;
-        float x2 = x1 + blockSize;
-        float y2 = y1 + blockSize;
-        float z2 = z1 + blockSize;
+        int x1 = x;
+        int y1 = y;
+        int z1 = z;
+        int x2 = x1 + 1;
+        int y2 = y1 + 1;
+        int z2 = z1 + 1;
 
         switch (face) {
             case TOP:
-                positions.add(x1);
-                positions.add(y2);
-                positions.add(z1);
-                positions.add(x1);
-                positions.add(y2);
-                positions.add(z2);
-                positions.add(x2);
-                positions.add(y2);
-                positions.add(z2);
-                positions.add(x2);
-                positions.add(y2);
-                positions.add(z1);
-                break;
             case BOTTOM:
-                positions.add(x1);
-                positions.add(y1);
-                positions.add(z1);
-                positions.add(x2);
-                positions.add(y1);
-                positions.add(z1);
-                positions.add(x2);
-                positions.add(y1);
-                positions.add(z2);
-                positions.add(x1);
-                positions.add(y1);
-                positions.add(z2);
+                x2 = x1 + w;
+                z2 = z1 + h;
                 break;
             case FRONT:
-                positions.add(x1);
-                positions.add(y1);
-                positions.add(z2);
-                positions.add(x2);
-                positions.add(y1);
-                positions.add(z2);
-                positions.add(x2);
-                positions.add(y2);
-                positions.add(z2);
-                positions.add(x1);
-                positions.add(y2);
-                positions.add(z2);
-                break;
             case BACK:
-                positions.add(x1);
-                positions.add(y1);
-                positions.add(z1);
-                positions.add(x1);
-                positions.add(y2);
-                positions.add(z1);
-                positions.add(x2);
-                positions.add(y2);
-                positions.add(z1);
-                positions.add(x2);
-                positions.add(y1);
-                positions.add(z1);
-                break;
-            case RIGHT:
-                positions.add(x2);
-                positions.add(y1);
-                positions.add(z1);
-                positions.add(x2);
-                positions.add(y2);
-                positions.add(z1);
-                positions.add(x2);
-                positions.add(y2);
-                positions.add(z2);
-                positions.add(x2);
-                positions.add(y1);
-                positions.add(z2);
+                x2 = x1 + w;
+                y2 = y1 + h;
                 break;
             case LEFT:
-                positions.add(x1);
-                positions.add(y1);
-                positions.add(z1);
-                positions.add(x1);
-                positions.add(y1);
-                positions.add(z2);
-                positions.add(x1);
-                positions.add(y2);
-                positions.add(z2);
-                positions.add(x1);
-                positions.add(y2);
-                positions.add(z1);
+            case RIGHT:
+                z2 = z1 + w;
+                y2 = y1 + h;
                 break;
         }
 
-        Vector4f textureRegion = getTextureRegion(blockType, face);
-        addTextureCoords(textureCoords, textureRegion, face);
-
-        indices.add(indexStart);
-        indices.add(indexStart + 1);
-        indices.add(indexStart + 2);
-        indices.add(indexStart);
-        indices.add(indexStart + 2);
-        indices.add(indexStart + 3);
-
-        return indexStart + 4;
-    }
-
-    private void addTextureCoords(List<Float> textureCoords, Vector4f region, Block.Face face) {
-        float minU = region.x;
-        float minV = region.y;
-        float maxU = region.z;
-        float maxV = region.w;
+        int[] tile = Scene.getTextureTile(textureIndex);
+        int tx = tile[0];
+        int ty = tile[1];
 
         switch (face) {
+            case TOP:
+                builder.vertex(packVertex(x1, y2, z1, face, tx, ty));
+                builder.vertex(packVertex(x1, y2, z2, face, tx, ty));
+                builder.vertex(packVertex(x2, y2, z2, face, tx, ty));
+                builder.vertex(packVertex(x2, y2, z1, face, tx, ty));
+                break;
+            case BOTTOM:
+                builder.vertex(packVertex(x1, y1, z1, face, tx, ty));
+                builder.vertex(packVertex(x2, y1, z1, face, tx, ty));
+                builder.vertex(packVertex(x2, y1, z2, face, tx, ty));
+                builder.vertex(packVertex(x1, y1, z2, face, tx, ty));
+                break;
             case FRONT:
-                textureCoords.add(minU);
-                textureCoords.add(maxV); 
-                textureCoords.add(maxU);
-                textureCoords.add(maxV); 
-                textureCoords.add(maxU);
-                textureCoords.add(minV); 
-                textureCoords.add(minU);
-                textureCoords.add(minV); 
+                builder.vertex(packVertex(x1, y1, z2, face, tx, ty));
+                builder.vertex(packVertex(x2, y1, z2, face, tx, ty));
+                builder.vertex(packVertex(x2, y2, z2, face, tx, ty));
+                builder.vertex(packVertex(x1, y2, z2, face, tx, ty));
                 break;
             case BACK:
-                textureCoords.add(minU);
-                textureCoords.add(maxV); 
-                textureCoords.add(minU);
-                textureCoords.add(minV); 
-                textureCoords.add(maxU);
-                textureCoords.add(minV); 
-                textureCoords.add(maxU);
-                textureCoords.add(maxV); 
-                break;
-            case LEFT:
-                textureCoords.add(maxU);
-                textureCoords.add(maxV); 
-                textureCoords.add(minU);
-                textureCoords.add(maxV); 
-                textureCoords.add(minU);
-                textureCoords.add(minV); 
-                textureCoords.add(maxU);
-                textureCoords.add(minV); 
+                builder.vertex(packVertex(x1, y1, z1, face, tx, ty));
+                builder.vertex(packVertex(x1, y2, z1, face, tx, ty));
+                builder.vertex(packVertex(x2, y2, z1, face, tx, ty));
+                builder.vertex(packVertex(x2, y1, z1, face, tx, ty));
                 break;
             case RIGHT:
-                textureCoords.add(minU);
-                textureCoords.add(maxV); 
-                textureCoords.add(minU);
-                textureCoords.add(minV); 
-                textureCoords.add(maxU);
-                textureCoords.add(minV); 
-                textureCoords.add(maxU);
-                textureCoords.add(maxV); 
-                break;
-            case TOP:
-                textureCoords.add(minU);
-                textureCoords.add(maxV); 
-                textureCoords.add(minU);
-                textureCoords.add(minV); 
-                textureCoords.add(maxU);
-                textureCoords.add(minV); 
-                textureCoords.add(maxU);
-                textureCoords.add(maxV); 
+                builder.vertex(packVertex(x2, y1, z1, face, tx, ty));
+                builder.vertex(packVertex(x2, y2, z1, face, tx, ty));
+                builder.vertex(packVertex(x2, y2, z2, face, tx, ty));
+                builder.vertex(packVertex(x2, y1, z2, face, tx, ty));
                 break;
-            case BOTTOM:
-                textureCoords.add(minU);
-                textureCoords.add(maxV);
-                textureCoords.add(maxU);
-                textureCoords.add(maxV);
-                textureCoords.add(maxU);
-                textureCoords.add(minV);
-                textureCoords.add(minU);
-                textureCoords.add(minV);
+            case LEFT:
+                builder.vertex(packVertex(x1, y1, z1, face, tx, ty));
+                builder.vertex(packVertex(x1, y1, z2, face, tx, ty));
+                builder.vertex(packVertex(x1, y2, z2, face, tx, ty));
+                builder.vertex(packVertex(x1, y2, z1, face, tx, ty));
                 break;
         }
-    }
 
-    private Vector4f getTextureRegion(Block.BlockType blockType, Block.Face face) {
-        return Scene.getBlockTextureRegion(blockType, face);
+        builder.endQuad();
     }
 
-
     public void cleanup() {
-        if (mesh != null) {
-            mesh.cleanup();
-            mesh = null;
+        for (int i = 0; i < sectionMeshes.length; i++) {
+            setSectionMesh(i, null);
         }
     }
 }
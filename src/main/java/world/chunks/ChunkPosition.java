@@ -1,7 +1,5 @@
 package world.chunks;
 
-import java.util.Objects;
-
 public class ChunkPosition {
     int x, z;
 
@@ -22,7 +20,7 @@ public class ChunkPosition {
 
     @Override
     public int hashCode() {
-        return Objects.hash(x, z);
+        return 31 * x + z;
     }
 
 
@@ -0,0 +1,126 @@
+package world.chunks;
+
+import world.blocks.BlockRegistry;
+
+public class ChunkSection {
+    public static final int SIZE = 16;
+    public static final int VOLUME = SIZE * SIZE * SIZE;
+
+    private final PaletteStorage storage;
+    private int nonAirCount;
+    // Letta anche dal thread di salvataggio: non si modifica più, Chunk ne fa una copia
+    private boolean shared;
+
+    public ChunkSection() {
+        this.storage = new PaletteStorage(VOLUME, BlockRegistry.AIR_ID);
+        this.nonAirCount = 0;
+    }
+
+    private ChunkSection(PaletteStorage storage, int nonAirCount) {
+        this.storage = storage;
+        this.nonAirCount = nonAirCount;
+    }
+
+    // Per la decodifica: paletteIndices ha VOLUME celle nell'ordine di index(), palette solo id presenti
+    public static ChunkSection of(int[] palette, int paletteSize, int[] paletteIndices) {
+        int airIndex = -1;
+        for (int p = 0; p < paletteSize; p++) {
+            if (palette[p] == BlockRegistry.AIR_ID) {
+                airIndex = p;
+            }
+        }
+        int nonAirCount = VOLUME;
+        if (airIndex >= 0) {
+            for (int i = 0; i < VOLUME; i++) {
+                if (paletteIndices[i] == airIndex) {
+                    nonAirCount--;
+                }
+            }
+        }
+        return new ChunkSection(PaletteStorage.of(palette, paletteSize, paletteIndices), nonAirCount);
+    }
+
+    public ChunkSection copy() {
+        return new ChunkSection(storage.copy(), nonAirCount);
+    }
+
+    void share() {
+        shared = true;
+    }
+
+    boolean isShared() {
+        return shared;
+    }
+
+    public int getBlockId(int x, int y, int z) {
+        return storage.get(index(x, y, z));
+    }
+
+    public void setBlockId(int x, int y, int z, int blockId) {
+        int index = index(x, y, z);
+        int oldId = storage.get(index);
+        if (oldId == blockId) {
+            return;
+        }
+        if (oldId == BlockRegistry.AIR_ID) {
+            nonAirCount++;
+        } else if (blockId == BlockRegistry.AIR_ID) {
+            nonAirCount--;
+        }
+        storage.set(index, blockId);
+    }
+
+    // Indici nell'ordine interno (y, z, x), come index()
+    public void setRange(int from, int to, int blockId) {
+        boolean air = blockId == BlockRegistry.AIR_ID;
+        for (int i = from; i < to; i++) {
+            boolean wasAir = storage.get(i) == BlockRegistry.AIR_ID;
+            if (wasAir != air) {
+                nonAirCount += air ? -1 : 1;
+            }
+        }
+        storage.setRange(from, to, blockId);
+    }
+
+    public void fill(int blockId) {
+        storage.fill(blockId);
+        nonAirCount = blockId == BlockRegistry.AIR_ID ? 0 : VOLUME;
+    }
+
+    public void optimize() {
+        storage.optimize();
+    }
+
+    public boolean isEmpty() {
+        return nonAirCount == 0;
+    }
+
+    public boolean isUniform() {
+        return storage.isUniform();
+    }
+
+    public boolean contains(int blockId) {
+        return storage.contains(blockId);
+    }
+
+    public boolean containsFluid() {
+        for (int i = 0; i < storage.getPaletteSize(); i++) {
+            if (BlockRegistry.isFluid(storage.getPaletteEntry(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int getNonAirCount() {
+        return nonAirCount;
+    }
+
+    public PaletteStorage getStorage() {
+        return storage;
+    }
+
+    private static int index(int x, int y, int z) {
+        return (y * SIZE + z) * SIZE + x;
+    }
+}
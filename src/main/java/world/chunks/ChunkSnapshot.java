@@ -0,0 +1,170 @@
+package world.chunks;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import world.World;
+import world.blocks.BlockRegistry;
+
+/*
+ * Copia degli id dei blocchi di un chunk più un bordo di un blocco preso dai
+ * quattro vicini, in un array 18x258x18 di short. Il meshing (e in futuro luce
+ * e AO) può leggerla da un worker senza lock né lookup nelle mappe.
+ * Va catturata sul thread principale e restituita al pool con release().
+ */
+public class ChunkSnapshot {
+    public static final int PADDED_WIDTH = Chunk.WIDTH + 2;
+    public static final int PADDED_HEIGHT = Chunk.HEIGHT + 2;
+    public static final int PADDED_DEPTH = Chunk.DEPTH + 2;
+
+    private static final int MAX_POOLED = 32;
+    private static final Queue<ChunkSnapshot> POOL = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger POOLED = new AtomicInteger();
+
+    private final short[] blocks = new short[PADDED_WIDTH * PADDED_HEIGHT * PADDED_DEPTH];
+    private final boolean[] emptySections = new boolean[Chunk.SECTION_COUNT];
+    private int chunkX;
+    private int chunkZ;
+    private int maxHeight;
+    private int capturedBottom;
+    private int capturedTop;
+    private boolean complete;
+
+    private ChunkSnapshot() {
+    }
+
+    private static ChunkSnapshot acquire() {
+        ChunkSnapshot snapshot = POOL.poll();
+        if (snapshot == null) {
+            return new ChunkSnapshot();
+        }
+        POOLED.decrementAndGet();
+        return snapshot;
+    }
+
+    public void release() {
+        if (POOLED.incrementAndGet() <= MAX_POOLED) {
+            POOL.add(this);
+        } else {
+            POOLED.decrementAndGet();
+        }
+    }
+
+    /*
+     * Vengono scritti solo gli strati che servono alle sezioni di sectionMask (più
+     * uno sopra e uno sotto) e mai oltre maxHeight: fuori da quell'intervallo
+     * getBlockId restituisce aria, quindi i dati di un uso precedente non vengono letti.
+     */
+    public static ChunkSnapshot capture(Chunk chunk, World world, int sectionMask) {
+        ChunkSnapshot snapshot = acquire();
+        snapshot.chunkX = chunk.getChunkX();
+        snapshot.chunkZ = chunk.getChunkZ();
+        snapshot.maxHeight = chunk.getMaxBlockHeight();
+
+        int lowest = Integer.numberOfTrailingZeros(sectionMask);
+        int highest = 31 - Integer.numberOfLeadingZeros(sectionMask);
+        int bottom = Math.max(0, lowest * ChunkSection.SIZE - 1);
+        int top = Math.min(Math.min(snapshot.maxHeight, Chunk.HEIGHT - 1), (highest + 1) * ChunkSection.SIZE);
+        snapshot.capturedBottom = bottom;
+        snapshot.capturedTop = top;
+        snapshot.complete = true;
+        for (int i = 0; i < Chunk.SECTION_COUNT; i++) {
+            snapshot.emptySections[i] = chunk.getSection(i) == null;
+        }
+
+        for (int y = bottom; y <= top; y++) {
+            ChunkSection section = chunk.getSection(y / ChunkSection.SIZE);
+            int localY = y % ChunkSection.SIZE;
+            for (int z = 0; z < Chunk.DEPTH; z++) {
+                int rowStart = index(0, y, z);
+                if (section == null) {
+                    Arrays.fill(snapshot.blocks, rowStart, rowStart + Chunk.WIDTH, (short) BlockRegistry.AIR_ID);
+                    continue;
+                }
+                for (int x = 0; x < Chunk.WIDTH; x++) {
+                    snapshot.blocks[rowStart + x] = (short) section.getBlockId(x, localY, z);
+                }
+            }
+        }
+
+        snapshot.captureBorder(world.getChunk(chunk.getChunkX() - 1, chunk.getChunkZ()), -1, Chunk.WIDTH - 1, true);
+        snapshot.captureBorder(world.getChunk(chunk.getChunkX() + 1, chunk.getChunkZ()), Chunk.WIDTH, 0, true);
+        snapshot.captureBorder(world.getChunk(chunk.getChunkX(), chunk.getChunkZ() - 1), -1, Chunk.DEPTH - 1, false);
+        snapshot.captureBorder(world.getChunk(chunk.getChunkX(), chunk.getChunkZ() + 1), Chunk.DEPTH, 0, false);
+        return snapshot;
+    }
+
+    // Copia la colonna di confine del vicino; un vicino non caricato resta aria
+    private void captureBorder(Chunk neighbor, int target, int source, boolean alongX) {
+        if (neighbor == null) {
+            complete = false;
+        }
+        int span = alongX ? Chunk.DEPTH : Chunk.WIDTH;
+        for (int y = capturedBottom; y <= capturedTop; y++) {
+            for (int i = 0; i < span; i++) {
+                int id = neighbor == null ? BlockRegistry.AIR_ID
+                        : alongX ? neighbor.getBlockId(source, y, i) : neighbor.getBlockId(i, y, source);
+                blocks[alongX ? index(target, y, i) : index(i, y, target)] = (short) id;
+            }
+        }
+    }
+
+    private static int index(int x, int y, int z) {
+        return ((y + 1) * PADDED_DEPTH + (z + 1)) * PADDED_WIDTH + (x + 1);
+    }
+
+    // Coordinate locali: x e z in [-1, 16] (angoli esclusi); y valida solo nell'intervallo catturato
+    public int getBlockId(int x, int y, int z) {
+        if (y < capturedBottom || y > capturedTop) {
+            return BlockRegistry.AIR_ID;
+        }
+        return blocks[index(x, y, z)];
+    }
+
+    // false se mancava almeno un vicino: la mesh cambierà quando arriva
+    public boolean isComplete() {
+        return complete;
+    }
+
+    // FNV-1a a 64 bit di tutto ciò che il meshing legge: celle catturate (angoli esclusi), intervallo e sezioni vuote
+    public long contentHash() {
+        long hash = 0xCBF29CE484222325L;
+        hash = (hash ^ capturedBottom) * 0x100000001B3L;
+        hash = (hash ^ capturedTop) * 0x100000001B3L;
+        hash = (hash ^ maxHeight) * 0x100000001B3L;
+        for (int i = 0; i < Chunk.SECTION_COUNT; i++) {
+            hash = (hash ^ (emptySections[i] ? 1 : 0)) * 0x100000001B3L;
+        }
+        for (int y = capturedBottom; y <= capturedTop; y++) {
+            for (int z = -1; z <= Chunk.DEPTH; z++) {
+                boolean edgeZ = z < 0 || z == Chunk.DEPTH;
+                int row = index(0, y, z);
+                for (int x = -1; x <= Chunk.WIDTH; x++) {
+                    if (edgeZ && (x < 0 || x == Chunk.WIDTH)) {
+                        continue;
+                    }
+                    hash = (hash ^ blocks[row + x]) * 0x100000001B3L;
+                }
+            }
+        }
+        return hash;
+    }
+
+    public boolean isSectionEmpty(int sectionIndex) {
+        return emptySections[sectionIndex];
+    }
+
+    public int getMaxHeight() {
+        return maxHeight;
+    }
+
+    public int getChunkX() {
+        return chunkX;
+    }
+
+    public int getChunkZ() {
+        return chunkZ;
+    }
+}
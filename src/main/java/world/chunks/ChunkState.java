@@ -0,0 +1,18 @@
+package world.chunks;
+
+/*
+ * Ciclo di vita di un chunk. Le transizioni avvengono solo con compare-and-set
+ * (Chunk.transition), quindi chi perde la gara rinuncia invece di ripetere il lavoro.
+ *
+ * QUEUED -> GENERATING -> GENERATED -> MESHING -> UPLOADING -> READY -> MESHING ...
+ * Da qualsiasi stato si può passare a UNLOADING, che è terminale.
+ */
+public enum ChunkState {
+    QUEUED,
+    GENERATING,
+    GENERATED,
+    MESHING,
+    UPLOADING,
+    READY,
+    UNLOADING
+}
@@ -0,0 +1,99 @@
+package world.chunks;
+
+import world.blocks.BlockRegistry;
+
+public class Heightmap {
+    public enum Type {
+        SOLID,
+        OPAQUE,
+        FLUID;
+
+        public boolean matches(int blockId) {
+            return switch (this) {
+                case SOLID -> BlockRegistry.isSolid(blockId);
+                case OPAQUE -> BlockRegistry.isOpaque(blockId);
+                case FLUID -> BlockRegistry.isFluid(blockId);
+            };
+        }
+    }
+
+    private final Type type;
+    private final short[] heights;
+    private int maxHeight;
+
+    public Heightmap(Type type) {
+        this.type = type;
+        this.heights = new short[Chunk.WIDTH * Chunk.DEPTH];
+        this.maxHeight = 0;
+    }
+
+    // Altezza = y del blocco più alto che soddisfa il tipo + 1, 0 se la colonna è vuota
+    public int getHeight(int x, int z) {
+        return heights[z * Chunk.WIDTH + x];
+    }
+
+    public int getMaxHeight() {
+        return maxHeight;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    void onBlockChanged(Chunk chunk, int x, int y, int z, int blockId) {
+        int index = z * Chunk.WIDTH + x;
+        int height = heights[index];
+
+        if (type.matches(blockId)) {
+            if (y >= height) {
+                heights[index] = (short) (y + 1);
+                if (y + 1 > maxHeight) {
+                    maxHeight = y + 1;
+                }
+            }
+        } else if (y == height - 1) {
+            heights[index] = (short) (findTop(chunk, x, y - 1, z) + 1);
+            if (height == maxHeight) {
+                recomputeMaxHeight();
+            }
+        }
+    }
+
+    // Ricalcola tutte le colonne, per i chunk caricati da cache o disco invece che generati
+    void rebuild(Chunk chunk) {
+        for (int z = 0; z < Chunk.DEPTH; z++) {
+            for (int x = 0; x < Chunk.WIDTH; x++) {
+                heights[z * Chunk.WIDTH + x] = (short) (findTop(chunk, x, Chunk.HEIGHT - 1, z) + 1);
+            }
+        }
+        recomputeMaxHeight();
+    }
+
+    private int findTop(Chunk chunk, int x, int startY, int z) {
+        int y = startY;
+        while (y >= 0) {
+            ChunkSection section = chunk.getSection(y / ChunkSection.SIZE);
+            int sectionBase = y - y % ChunkSection.SIZE;
+            if (section == null) {
+                y = sectionBase - 1;
+                continue;
+            }
+            for (; y >= sectionBase; y--) {
+                if (type.matches(section.getBlockId(x, y - sectionBase, z))) {
+                    return y;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private void recomputeMaxHeight() {
+        int max = 0;
+        for (short height : heights) {
+            if (height > max) {
+                max = height;
+            }
+        }
+        maxHeight = max;
+    }
+}
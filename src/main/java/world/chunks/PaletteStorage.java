@@ -0,0 +1,203 @@
+package world.chunks;
+
+import java.util.Arrays;
+
+public class PaletteStorage {
+    private final int size;
+    private int[] palette;
+    private int paletteSize;
+    private int bitsPerEntry;
+    private int entriesPerLong;
+    private long mask;
+    private long[] data;
+
+    public PaletteStorage(int size, int initialId) {
+        this.size = size;
+        this.palette = new int[2];
+        this.palette[0] = initialId;
+        this.paletteSize = 1;
+        this.bitsPerEntry = 0;
+    }
+
+    // Già compatto, come dopo optimize(): palette senza voci inutilizzate, un indice nella palette per cella
+    public static PaletteStorage of(int[] palette, int paletteSize, int[] paletteIndices) {
+        PaletteStorage storage = new PaletteStorage(paletteIndices.length, palette[0]);
+        if (paletteSize == 1) {
+            return storage;
+        }
+        storage.palette = Arrays.copyOf(palette, paletteSize);
+        storage.paletteSize = paletteSize;
+        storage.bitsPerEntry = 32 - Integer.numberOfLeadingZeros(paletteSize - 1);
+        storage.entriesPerLong = 64 / storage.bitsPerEntry;
+        storage.mask = (1L << storage.bitsPerEntry) - 1;
+        storage.data = new long[(storage.size + storage.entriesPerLong - 1) / storage.entriesPerLong];
+        int index = 0;
+        for (int longIndex = 0; longIndex < storage.data.length; longIndex++) {
+            long packed = 0;
+            for (int entry = 0; entry < storage.entriesPerLong && index < storage.size; entry++) {
+                packed |= (long) paletteIndices[index++] << (entry * storage.bitsPerEntry);
+            }
+            storage.data[longIndex] = packed;
+        }
+        return storage;
+    }
+
+    // Copia indipendente: le modifiche all'originale non la toccano
+    public PaletteStorage copy() {
+        PaletteStorage copy = new PaletteStorage(size, palette[0]);
+        copy.palette = palette.clone();
+        copy.paletteSize = paletteSize;
+        copy.bitsPerEntry = bitsPerEntry;
+        copy.entriesPerLong = entriesPerLong;
+        copy.mask = mask;
+        copy.data = data == null ? null : data.clone();
+        return copy;
+    }
+
+    public int get(int index) {
+        if (bitsPerEntry == 0) {
+            return palette[0];
+        }
+        return palette[getPaletteIndex(index)];
+    }
+
+    public void set(int index, int blockId) {
+        int paletteIndex = indexOf(blockId);
+        if (paletteIndex < 0) {
+            paletteIndex = paletteSize;
+            if (paletteSize == palette.length) {
+                palette = Arrays.copyOf(palette, palette.length * 2);
+            }
+            palette[paletteSize++] = blockId;
+            if (bitsPerEntry == 0 || paletteIndex > mask) {
+                resize(bitsPerEntry + 1);
+            }
+        }
+        if (bitsPerEntry != 0) {
+            setPaletteIndex(index, paletteIndex);
+        }
+    }
+
+    // Come set() su [from, to), cercando l'id nella palette una sola volta
+    public void setRange(int from, int to, int blockId) {
+        set(from, blockId);
+        if (bitsPerEntry == 0) {
+            return;
+        }
+        int paletteIndex = indexOf(blockId);
+        for (int i = from + 1; i < to; i++) {
+            setPaletteIndex(i, paletteIndex);
+        }
+    }
+
+    public void fill(int blockId) {
+        palette[0] = blockId;
+        paletteSize = 1;
+        bitsPerEntry = 0;
+        entriesPerLong = 0;
+        mask = 0;
+        data = null;
+    }
+
+    public boolean contains(int blockId) {
+        return indexOf(blockId) >= 0;
+    }
+
+    public boolean isUniform() {
+        return bitsPerEntry == 0;
+    }
+
+    public void optimize() {
+        if (bitsPerEntry == 0) {
+            return;
+        }
+
+        int[] counts = new int[paletteSize];
+        for (int i = 0; i < size; i++) {
+            counts[getPaletteIndex(i)]++;
+        }
+
+        int used = 0;
+        for (int count : counts) {
+            if (count > 0) {
+                used++;
+            }
+        }
+        if (used == paletteSize) {
+            return;
+        }
+
+        int[] values = new int[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = palette[getPaletteIndex(i)];
+        }
+
+        int first = values[0];
+
+        fill(first);
+        for (int i = 0; i < size; i++) {
+            if (values[i] != first) {
+                set(i, values[i]);
+            }
+        }
+    }
+
+    private int indexOf(int blockId) {
+        for (int i = 0; i < paletteSize; i++) {
+            if (palette[i] == blockId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int getPaletteIndex(int index) {
+        int longIndex = index / entriesPerLong;
+        int shift = (index % entriesPerLong) * bitsPerEntry;
+        return (int) ((data[longIndex] >>> shift) & mask);
+    }
+
+    private void setPaletteIndex(int index, int paletteIndex) {
+        int longIndex = index / entriesPerLong;
+        int shift = (index % entriesPerLong) * bitsPerEntry;
+        data[longIndex] = (data[longIndex] & ~(mask << shift)) | ((paletteIndex & mask) << shift);
+    }
+
+    private void resize(int newBits) {
+        long[] oldData = data;
+        int oldBits = bitsPerEntry;
+        int oldEntriesPerLong = entriesPerLong;
+        long oldMask = mask;
+
+        bitsPerEntry = newBits;
+        entriesPerLong = 64 / newBits;
+        mask = (1L << newBits) - 1;
+        data = new long[(size + entriesPerLong - 1) / entriesPerLong];
+
+        if (oldData == null) {
+            return;
+        }
+
+        for (int i = 0; i < size; i++) {
+            int shift = (i % oldEntriesPerLong) * oldBits;
+            int paletteIndex = (int) ((oldData[i / oldEntriesPerLong] >>> shift) & oldMask);
+            setPaletteIndex(i, paletteIndex);
+        }
+    }
+
+    public int getBitsPerEntry() {
+        return bitsPerEntry;
+    }
+
+    public int getPaletteSize() {
+        return paletteSize;
+    }
+
+    public int getPaletteEntry(int paletteIndex) {
+        return palette[paletteIndex];
+    }
+
+    public long getDataSizeBytes() {
+        return data == null ? 0 : (long) data.length * Long.BYTES;
+    }
+}
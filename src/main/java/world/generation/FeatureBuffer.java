@@ -0,0 +1,66 @@
+package world.generation;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import world.chunks.ChunkPosition;
+
+/*
+ * Alberi pianificati per posizione di chunk, letti dal chunk stesso e dagli 8 vicini:
+ * un albero vicino al bordo viene disegnato anche nei chunk confinanti quando questi generano,
+ * qualunque sia l'ordine di caricamento. Il piano dipende solo da seme, posizione e altezze,
+ * quindi una voce tolta per rispettare il limite di memoria viene semplicemente ricalcolata.
+ */
+public class FeatureBuffer {
+    private final int maxChunks;
+    private final Map<ChunkPosition, List<TreeFeature>> plans = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public FeatureBuffer(int maxChunks) {
+        this.maxChunks = Math.max(16, maxChunks);
+    }
+
+    public List<TreeFeature> get(int chunkX, int chunkZ, Supplier<List<TreeFeature>> planner) {
+        ChunkPosition position = new ChunkPosition(chunkX, chunkZ);
+        List<TreeFeature> trees = plans.get(position);
+        if (trees != null) {
+            hits.increment();
+            return trees;
+        }
+        misses.increment();
+        // Due thread possono pianificare lo stesso chunk insieme: il risultato è lo stesso
+        trees = planner.get();
+        plans.put(position, trees);
+        if (plans.size() > maxChunks) {
+            trim();
+        }
+        return trees;
+    }
+
+    // Toglie voci qualsiasi fino a metà del limite
+    private void trim() {
+        for (ChunkPosition position : plans.keySet()) {
+            if (plans.size() <= maxChunks / 2) {
+                return;
+            }
+            plans.remove(position);
+        }
+    }
+
+    public void clear() {
+        plans.clear();
+    }
+
+    public int size() {
+        return plans.size();
+    }
+
+    public String summary() {
+        long lookups = hits.sum() + misses.sum();
+        return String.format("%d chunk pianificati, hit %d/%d", plans.size(), hits.sum(), lookups);
+    }
+}
@@ -0,0 +1,252 @@
+package world.generation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import world.chunks.Chunk;
+import world.chunks.ChunkPosition;
+import world.chunks.ChunkState;
+
+/*
+ * Generazione dei chunk a stadi (GenerationStage) su un ForkJoinPool.
+ * Ogni stadio è un task che parte quando le sue dipendenze sono complete: lo stadio precedente
+ * dello stesso chunk e lo stadio NOISE dei vicini entro neighborRadius. Le altezze NOISE stanno
+ * in una mappa condivisa con conteggio dei riferimenti, così chunk adiacenti le calcolano una volta
+ * sola; quelle non più richieste restano finché la mappa non supera MAX_CACHED_HEIGHTS (1 KB l'una).
+ * Il risultato è identico a Chunk.generate(): stessi stadi, stesso ordine sul chunk.
+ */
+public class GenerationPipeline {
+    private static final GenerationStage[] STAGES = GenerationStage.values();
+    private static final int MAX_CACHED_HEIGHTS = 1024;
+
+    private final ForkJoinPool pool;
+    private final Map<ChunkPosition, HeightEntry> heights = new ConcurrentHashMap<>();
+    private final LongAdder[] stageNanos = new LongAdder[STAGES.length];
+    private final LongAdder[] stageRuns = new LongAdder[STAGES.length];
+    private final LongAdder heightsShared = new LongAdder();
+    private final LongAdder chunksGenerated = new LongAdder();
+
+    private static class HeightEntry {
+        final CompletableFuture<int[]> heights;
+        int references;
+
+        HeightEntry(CompletableFuture<int[]> heights) {
+            this.heights = heights;
+        }
+    }
+
+    public GenerationPipeline(int parallelism) {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.pool = new ForkJoinPool(Math.max(1, parallelism), p -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            thread.setName("chunk-gen-" + threadCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }, null, true);
+        for (int i = 0; i < STAGES.length; i++) {
+            stageNanos[i] = new LongAdder();
+            stageRuns[i] = new LongAdder();
+        }
+    }
+
+    // Completa con il chunk in stato GENERATED, oppure null se era già preso o è stato scaricato nel frattempo
+    public CompletableFuture<Chunk> generate(Chunk chunk) {
+        if (!chunk.beginGeneration()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        int chunkX = chunk.getChunkX();
+        int chunkZ = chunk.getChunkZ();
+        int radius = maxNeighborRadius();
+        int side = radius * 2 + 1;
+
+        // Indice (dz + radius) * side + dx + radius
+        List<CompletableFuture<int[]>> noise = new ArrayList<>(side * side);
+        for (int dz = -radius; dz <= radius; dz++) {
+            for (int dx = -radius; dx <= radius; dx++) {
+                noise.add(acquireHeights(chunkX + dx, chunkZ + dz));
+            }
+        }
+        CompletableFuture<int[]> own = noise.get(radius * side + radius);
+
+        CompletableFuture<Chunk> surface = own.thenApplyAsync(columns -> {
+            if (isGenerating(chunk)) {
+                long start = System.nanoTime();
+                WorldGenerator.forCurrentThread().fillColumns(chunk, columns);
+                record(GenerationStage.SURFACE, start);
+            }
+            return chunk;
+        }, pool);
+
+        CompletableFuture<Chunk> features = surface.thenCombineAsync(dependencies(noise, radius, GenerationStage.FEATURES),
+                (generated, ignored) -> {
+                    if (isGenerating(chunk)) {
+                        long start = System.nanoTime();
+                        WorldGenerator generator = WorldGenerator.forCurrentThread();
+                        generator.generateFeatures(chunk, region(chunkX, chunkZ, generator, noise, radius));
+                        record(GenerationStage.FEATURES, start);
+                    }
+                    return chunk;
+                }, pool);
+
+        return features.thenApplyAsync(generated -> {
+            long start = System.nanoTime();
+            boolean published = chunk.finishGeneration();
+            record(GenerationStage.DECORATION, start);
+            if (published) {
+                chunksGenerated.increment();
+            }
+            return published ? chunk : null;
+        }, pool).whenComplete((generated, error) -> {
+            for (int dz = -radius; dz <= radius; dz++) {
+                for (int dx = -radius; dx <= radius; dx++) {
+                    releaseHeights(chunkX + dx, chunkZ + dz, noise.get((dz + radius) * side + dx + radius));
+                }
+            }
+        });
+    }
+
+    private static boolean isGenerating(Chunk chunk) {
+        return chunk.getState() == ChunkState.GENERATING;
+    }
+
+    private static int maxNeighborRadius() {
+        int radius = 0;
+        for (GenerationStage stage : STAGES) {
+            radius = Math.max(radius, stage.getNeighborRadius());
+        }
+        return radius;
+    }
+
+    // Le altezze NOISE dei vicini entro il raggio dello stadio
+    private static CompletableFuture<Void> dependencies(List<CompletableFuture<int[]>> noise, int radius,
+            GenerationStage stage) {
+        int side = radius * 2 + 1;
+        int stageRadius = stage.getNeighborRadius();
+        List<CompletableFuture<int[]>> needed = new ArrayList<>((stageRadius * 2 + 1) * (stageRadius * 2 + 1));
+        for (int dz = -stageRadius; dz <= stageRadius; dz++) {
+            for (int dx = -stageRadius; dx <= stageRadius; dx++) {
+                needed.add(noise.get((dz + radius) * side + dx + radius));
+            }
+        }
+        return CompletableFuture.allOf(needed.toArray(new CompletableFuture<?>[0]));
+    }
+
+    private static HeightRegion region(int chunkX, int chunkZ, WorldGenerator generator,
+            List<CompletableFuture<int[]>> noise, int radius) {
+        HeightRegion region = generator.region(chunkX, chunkZ);
+        int side = radius * 2 + 1;
+        // HeightRegion copre solo i vicini diretti
+        int reach = Math.min(radius, 1);
+        for (int dz = -reach; dz <= reach; dz++) {
+            for (int dx = -reach; dx <= reach; dx++) {
+                CompletableFuture<int[]> columns = noise.get((dz + radius) * side + dx + radius);
+                if (columns.isDone()) {
+                    region.set(dx, dz, columns.join());
+                }
+            }
+        }
+        return region;
+    }
+
+    private CompletableFuture<int[]> acquireHeights(int chunkX, int chunkZ) {
+        ChunkPosition key = new ChunkPosition(chunkX, chunkZ);
+        HeightEntry[] created = new HeightEntry[1];
+        HeightEntry entry = heights.compute(key, (position, current) -> {
+            if (current == null) {
+                current = new HeightEntry(CompletableFuture.supplyAsync(() -> {
+                    long start = System.nanoTime();
+                    // Nuovo array: le altezze restano condivise tra i vicini dopo questo task
+                    int[] columns = WorldGenerator.forCurrentThread().computeHeights(chunkX, chunkZ,
+                            new int[Chunk.WIDTH * Chunk.DEPTH]);
+                    record(GenerationStage.NOISE, start);
+                    return columns;
+                }, pool));
+                created[0] = current;
+            } else {
+                heightsShared.increment();
+            }
+            current.references++;
+            return current;
+        });
+        if (created[0] != null) {
+            // Un calcolo fallito non resta in mappa: il prossimo chunk che ne ha bisogno lo riprova
+            entry.heights.whenComplete((columns, error) -> {
+                if (error != null) {
+                    heights.remove(key, entry);
+                }
+            });
+        }
+        return entry.heights;
+    }
+
+    // columns è il future avuto da acquireHeights: una voce ricreata dopo un errore non va toccata
+    private void releaseHeights(int chunkX, int chunkZ, CompletableFuture<int[]> columns) {
+        heights.computeIfPresent(new ChunkPosition(chunkX, chunkZ), (position, entry) -> {
+            if (entry.heights == columns) {
+                entry.references--;
+            }
+            return entry;
+        });
+        if (heights.size() > MAX_CACHED_HEIGHTS) {
+            trimHeights();
+        }
+    }
+
+    // Toglie le altezze che nessun chunk in generazione sta usando, fino a metà del limite
+    private void trimHeights() {
+        for (ChunkPosition position : heights.keySet()) {
+            if (heights.size() <= MAX_CACHED_HEIGHTS / 2) {
+                return;
+            }
+            heights.computeIfPresent(position, (key, entry) -> entry.references == 0 ? null : entry);
+        }
+    }
+
+    private void record(GenerationStage stage, long startNanos) {
+        stageNanos[stage.ordinal()].add(System.nanoTime() - startNanos);
+        stageRuns[stage.ordinal()].increment();
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    public long getChunksGenerated() {
+        return chunksGenerated.sum();
+    }
+
+    // Tempo medio di ogni stadio in millisecondi
+    public double getAverageStageMillis(GenerationStage stage) {
+        long runs = stageRuns[stage.ordinal()].sum();
+        return runs == 0 ? 0 : stageNanos[stage.ordinal()].sum() / 1_000_000.0 / runs;
+    }
+
+    public String summary() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(chunksGenerated.sum()).append(" chunk su ").append(pool.getParallelism()).append(" thread");
+        for (GenerationStage stage : STAGES) {
+            builder.append(String.format(", %s %.3f ms", stage, getAverageStageMillis(stage)));
+        }
+        builder.append(", altezze riusate ").append(heightsShared.sum());
+        builder.append(", alberi: ").append(WorldGenerator.getFeatureBuffer().summary());
+        return builder.toString();
+    }
+
+    public void shutdown() {
+        pool.shutdownNow();
+        try {
+            pool.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        heights.clear();
+    }
+}
@@ -0,0 +1,29 @@
+package world.generation;
+
+/*
+ * Stadi della generazione di un chunk, nell'ordine in cui vengono eseguiti.
+ * Ogni stadio parte quando il chunk ha finito il precedente e, entro neighborRadius,
+ * i chunk vicini hanno finito lo stadio NOISE (le sole informazioni dei vicini che servono).
+ *
+ * NOISE      altezze delle colonne dal rumore; non tocca il chunk, condiviso tra vicini
+ * SURFACE    riempimento delle colonne fino all'altezza
+ * FEATURES   alberi del chunk e parti di quelli dei vicini che superano il bordo,
+ *            pianificati dalle altezze NOISE dei vicini
+ * DECORATION compattazione delle palette e pubblicazione del chunk come GENERATED
+ */
+public enum GenerationStage {
+    NOISE(0),
+    SURFACE(0),
+    FEATURES(1),
+    DECORATION(0);
+
+    private final int neighborRadius;
+
+    GenerationStage(int neighborRadius) {
+        this.neighborRadius = neighborRadius;
+    }
+
+    public int getNeighborRadius() {
+        return neighborRadius;
+    }
+}
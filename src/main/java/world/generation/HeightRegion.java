@@ -0,0 +1,50 @@
+package world.generation;
+
+import world.chunks.Chunk;
+
+/*
+ * Altezze del terreno di un chunk e degli 8 vicini, indirizzate con coordinate locali del chunk
+ * centrale da -16 a 31. La pipeline la riempie con le altezze già calcolate dallo stadio NOISE;
+ * nel percorso sincrono le colonne dei vicini vengono calcolate solo alla prima lettura,
+ * negli array di lavoro della regione. Ogni WorldGenerator ne ha una e la riusa con reset().
+ */
+public class HeightRegion {
+    private int centerX;
+    private int centerZ;
+    private final int[][] heights = new int[9][];
+    private final int[][] scratch = new int[9][Chunk.WIDTH * Chunk.DEPTH];
+    private final WorldGenerator generator;
+
+    HeightRegion(WorldGenerator generator) {
+        this.generator = generator;
+    }
+
+    void reset(int centerX, int centerZ) {
+        this.centerX = centerX;
+        this.centerZ = centerZ;
+        for (int i = 0; i < heights.length; i++) {
+            heights[i] = null;
+        }
+    }
+
+    // dx, dz in [-1, 1]; chunkHeights non viene copiato
+    public void set(int dx, int dz, int[] chunkHeights) {
+        heights[(dz + 1) * 3 + dx + 1] = chunkHeights;
+    }
+
+    public int[] getChunkHeights(int dx, int dz) {
+        int slot = (dz + 1) * 3 + dx + 1;
+        int[] chunkHeights = heights[slot];
+        if (chunkHeights == null) {
+            chunkHeights = generator.computeHeights(centerX + dx, centerZ + dz, scratch[slot]);
+            heights[slot] = chunkHeights;
+        }
+        return chunkHeights;
+    }
+
+    public int getHeight(int localX, int localZ) {
+        int dx = Math.floorDiv(localX, Chunk.WIDTH);
+        int dz = Math.floorDiv(localZ, Chunk.DEPTH);
+        return getChunkHeights(dx, dz)[Math.floorMod(localZ, Chunk.DEPTH) * Chunk.WIDTH + Math.floorMod(localX, Chunk.WIDTH)];
+    }
+}
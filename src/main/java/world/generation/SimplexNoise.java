@@ -0,0 +1,134 @@
+package world.generation;
+
+/*
+ * Simplex noise 2D (Gustavson) con permutazione derivata dal seme, più somma frattale di ottave.
+ * Stesso seme, stessi valori su qualsiasi macchina: solo aritmetica double senza Math.sin/cos.
+ * fill() calcola una griglia intera ottava per ottava, con un ciclo interno senza chiamate
+ * virtuali né allocazioni; è il percorso usato per le altezze di un chunk.
+ */
+public class SimplexNoise {
+    private static final double F2 = 0.5 * (Math.sqrt(3.0) - 1.0);
+    private static final double G2 = (3.0 - Math.sqrt(3.0)) / 6.0;
+    // 12 gradienti sul cerchio, come coppie (x, y)
+    private static final double[] GRADIENTS = {
+            1, 1, -1, 1, 1, -1, -1, -1,
+            1, 0, -1, 0, 1, 0, -1, 0,
+            0, 1, 0, -1, 0, 1, 0, -1
+    };
+
+    private final long seed;
+    private final short[] perm = new short[512];
+    private final short[] permGrad = new short[512];
+
+    public SimplexNoise(long seed) {
+        this.seed = seed;
+        short[] source = new short[256];
+        for (short i = 0; i < 256; i++) {
+            source[i] = i;
+        }
+        // Fisher-Yates con uno splitmix64: niente dipendenza dall'implementazione di java.util.Random
+        long state = seed;
+        for (int i = 255; i > 0; i--) {
+            state += 0x9E3779B97F4A7C15L;
+            int j = (int) Long.remainderUnsigned(mix(state), i + 1);
+            short tmp = source[i];
+            source[i] = source[j];
+            source[j] = tmp;
+        }
+        for (int i = 0; i < 512; i++) {
+            perm[i] = source[i & 255];
+            permGrad[i] = (short) ((perm[i] % 12) * 2);
+        }
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    // Valore in [-1, 1]
+    public double noise(double x, double y) {
+        double s = (x + y) * F2;
+        int i = fastFloor(x + s);
+        int j = fastFloor(y + s);
+        double t = (i + j) * G2;
+        double x0 = x - (i - t);
+        double y0 = y - (j - t);
+
+        int i1 = x0 > y0 ? 1 : 0;
+        int j1 = 1 - i1;
+        double x1 = x0 - i1 + G2;
+        double y1 = y0 - j1 + G2;
+        double x2 = x0 - 1.0 + 2.0 * G2;
+        double y2 = y0 - 1.0 + 2.0 * G2;
+
+        int ii = i & 255;
+        int jj = j & 255;
+        double n = corner(permGrad[ii + perm[jj]], x0, y0)
+                + corner(permGrad[ii + i1 + perm[jj + j1]], x1, y1)
+                + corner(permGrad[ii + 1 + perm[jj + 1]], x2, y2);
+        return 70.0 * n;
+    }
+
+    private static double corner(int gradient, double x, double y) {
+        double t = 0.5 - x * x - y * y;
+        if (t < 0) {
+            return 0;
+        }
+        t *= t;
+        return t * t * (GRADIENTS[gradient] * x + GRADIENTS[gradient + 1] * y);
+    }
+
+    private static int fastFloor(double value) {
+        int truncated = (int) value;
+        return value < truncated ? truncated - 1 : truncated;
+    }
+
+    // Somma di ottave normalizzata in [-1, 1]
+    public double fractal(double x, double y, int octaves, double frequency, double lacunarity, double gain) {
+        double sum = 0;
+        double amplitude = 1;
+        double norm = 0;
+        for (int octave = 0; octave < octaves; octave++) {
+            sum += noise(x * frequency, y * frequency) * amplitude;
+            norm += amplitude;
+            amplitude *= gain;
+            frequency *= lacunarity;
+        }
+        return sum / norm;
+    }
+
+    /*
+     * Riempie out[z * width + x] con fractal(startX + x, startZ + z, ...) per una griglia width x depth.
+     * Un'ottava alla volta su tutta la griglia: stessi risultati di fractal(), bit per bit.
+     */
+    public void fill(double startX, double startZ, int width, int depth, double[] out,
+            int octaves, double frequency, double lacunarity, double gain) {
+        int cells = width * depth;
+        for (int i = 0; i < cells; i++) {
+            out[i] = 0;
+        }
+        double amplitude = 1;
+        double norm = 0;
+        for (int octave = 0; octave < octaves; octave++) {
+            for (int z = 0; z < depth; z++) {
+                double sampleZ = (startZ + z) * frequency;
+                int row = z * width;
+                for (int x = 0; x < width; x++) {
+                    out[row + x] += noise((startX + x) * frequency, sampleZ) * amplitude;
+                }
+            }
+            norm += amplitude;
+            amplitude *= gain;
+            frequency *= lacunarity;
+        }
+        for (int i = 0; i < cells; i++) {
+            out[i] /= norm;
+        }
+    }
+}
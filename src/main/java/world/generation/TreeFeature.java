@@ -0,0 +1,36 @@
+package world.generation;
+
+/*
+ * Un albero pianificato: coordinate locali al chunk che lo contiene, forma e seme delle foglie.
+ * Basta questo per disegnarlo identico in qualsiasi chunk tocchi, senza guardare i blocchi già presenti.
+ */
+public class TreeFeature {
+    // Le foglie arrivano fino a 3 blocchi dal tronco
+    public static final int MAX_REACH = 3;
+
+    final int x;
+    final int y;
+    final int z;
+    final int type;
+    final int trunkHeight;
+    final int leafSize;
+    final long leafSeed;
+
+    TreeFeature(int x, int y, int z, int type, int trunkHeight, int leafSize, long leafSeed) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.type = type;
+        this.trunkHeight = trunkHeight;
+        this.leafSize = leafSize;
+        this.leafSeed = leafSeed;
+    }
+
+    // true se l'albero, spostato di (offsetX, offsetZ), può avere blocchi nel chunk 0..15
+    boolean reaches(int offsetX, int offsetZ, int width, int depth) {
+        int localX = x + offsetX;
+        int localZ = z + offsetZ;
+        return localX + MAX_REACH >= 0 && localX - MAX_REACH < width
+                && localZ + MAX_REACH >= 0 && localZ - MAX_REACH < depth;
+    }
+}
@@ -1,103 +1,226 @@
 package world.generation;
 
-import java.util.Random;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
 
 import world.blocks.Block;
-import world.blocks.BlockFactory;
+import world.blocks.BlockRegistry;
 import world.chunks.Chunk;
+import world.chunks.ChunkSection;
 
 
 public class WorldGenerator {
-    private final BlockFactory blockFactory;
-    
+    // Da incrementare quando lo stesso seme produce un terreno diverso: i salvataggi delta dipendono da questo
+    public static final int VERSION = 5;
+    public static final long DEFAULT_SEED = 0x5EEDL;
+
+    private static final int SEA_LEVEL = 64;
+    private static final double HILL_FACTOR = 24.0;
+    private static final int OCTAVES = 4;
+    private static final double BASE_FREQUENCY = 0.008;
+    private static final double LACUNARITY = 2.0;
+    private static final double GAIN = 0.5;
+    private static final int COLUMNS = Chunk.WIDTH * Chunk.DEPTH;
+    // Un generatore per thread, con i suoi array di lavoro: nessuna allocazione per chunk
+    private static final ThreadLocal<WorldGenerator> GENERATORS = ThreadLocal.withInitial(WorldGenerator::new);
+
+    // Condivisa da tutti i generatori: la tabella di permutazione si costruisce una volta per seme
+    private static volatile SimplexNoise terrainNoise = new SimplexNoise(DEFAULT_SEED);
+    // Limite di 4096 chunk, meno di 1 MB: in media 4 alberi per voce
+    private static final FeatureBuffer FEATURES = new FeatureBuffer(4096);
+
+    private static final int AIR_ID = BlockRegistry.AIR_ID;
+    private static final int GRASS_ID = BlockRegistry.getId(Block.BlockType.GRASS);
+    private static final int DIRT_ID = BlockRegistry.getId(Block.BlockType.DIRT);
+    private static final int STONE_ID = BlockRegistry.getId(Block.BlockType.STONE);
+    private static final int WOOD_ID = BlockRegistry.getId(Block.BlockType.WOOD);
+    private static final int LEAVES_ID = BlockRegistry.getId(Block.BlockType.LEAVES);
+
+    private SimplexNoise noise;
+    private final double[] noiseScratch = new double[COLUMNS];
+    private final boolean[] positionTried = new boolean[COLUMNS];
+    private final HeightRegion region = new HeightRegion(this);
+
     public WorldGenerator() {
-        this.blockFactory = BlockFactory.getInstance();
+        this.noise = terrainNoise;
     }
-    
+
+    // Il generatore del thread corrente; da non passare ad altri thread
+    public static WorldGenerator forCurrentThread() {
+        WorldGenerator generator = GENERATORS.get();
+        generator.noise = terrainNoise;
+        return generator;
+    }
+
+    // Regione di altezze riusabile del generatore, valida fino alla prossima chiamata
+    public HeightRegion region(int chunkX, int chunkZ) {
+        region.reset(chunkX, chunkZ);
+        return region;
+    }
+
+    // Da chiamare prima di generare o caricare chunk: cambia il terreno di tutto il mondo
+    public static void setWorldSeed(long seed) {
+        if (terrainNoise.getSeed() != seed) {
+            terrainNoise = new SimplexNoise(seed);
+            FEATURES.clear();
+        }
+    }
+
+    public static long getWorldSeed() {
+        return terrainNoise.getSeed();
+    }
+
+    public static FeatureBuffer getFeatureBuffer() {
+        return FEATURES;
+    }
+
     public void generateBaseTerrain(Chunk chunk) {
-        for (int x = 0; x < Chunk.WIDTH; x++) {
-            for (int z = 0; z < Chunk.DEPTH; z++) {
-                int globalX = chunk.getChunkX() * Chunk.WIDTH + x;
-                int globalZ = chunk.getChunkZ() * Chunk.DEPTH + z;
-                int terrainHeight = getTerrainHeight(globalX, globalZ);
-
-                for (int y = 0; y < Chunk.HEIGHT; y++) {
-                    Block.BlockType blockType = determineBlockType(y, terrainHeight);
-                    
-                    if (blockType != Block.BlockType.AIR) {
-                        Block block = blockFactory.createBlock(blockType);
-                        chunk.setBlock(x, y, z, block);
+        fillColumns(chunk, region(chunk.getChunkX(), chunk.getChunkZ()).getChunkHeights(0, 0));
+    }
+
+    // Stadio NOISE: altezza del terreno delle 256 colonne, out[z * WIDTH + x], in una sola passata sul rumore
+    public int[] computeHeights(int chunkX, int chunkZ, int[] out) {
+        double[] heights = noiseScratch;
+        noise.fill(chunkX * Chunk.WIDTH, chunkZ * Chunk.DEPTH, Chunk.WIDTH, Chunk.DEPTH,
+                heights, OCTAVES, BASE_FREQUENCY, LACUNARITY, GAIN);
+        for (int i = 0; i < out.length; i++) {
+            out[i] = toTerrainHeight(heights[i]);
+        }
+        return out;
+    }
+
+    /*
+     * Stadio SURFACE: pietra, terra ed erba fino all'altezza di ogni colonna, scritte per intervalli
+     * direttamente nelle sezioni. Gli strati sotto la colonna più bassa sono tutti terra (pietra a y = 0)
+     * e si riempiono interi; sopra si scrivono i tratti di riga con lo stesso blocco.
+     */
+    public void fillColumns(Chunk chunk, int[] heights) {
+        int minHeight = Chunk.HEIGHT;
+        int maxHeight = 0;
+        for (int height : heights) {
+            minHeight = Math.min(minHeight, height);
+            maxHeight = Math.max(maxHeight, height);
+        }
+        maxHeight = Math.min(maxHeight, Chunk.HEIGHT);
+        // Ogni y sotto uniformTop ha lo stesso blocco in tutte le colonne
+        int uniformTop = Math.max(0, minHeight - 1);
+
+        for (int sectionBase = 0; sectionBase < maxHeight; sectionBase += ChunkSection.SIZE) {
+            ChunkSection section = chunk.getOrCreateSection(sectionBase / ChunkSection.SIZE);
+            int sectionTop = Math.min(sectionBase + ChunkSection.SIZE, maxHeight);
+            int y = sectionBase;
+            if (sectionBase > 0 && sectionBase + ChunkSection.SIZE <= uniformTop) {
+                section.fill(DIRT_ID);
+                continue;
+            }
+            for (; y < sectionTop; y++) {
+                int layer = (y - sectionBase) * COLUMNS;
+                if (y < uniformTop) {
+                    section.setRange(layer, layer + COLUMNS, determineBlockId(y, Chunk.HEIGHT));
+                    continue;
+                }
+                for (int z = 0; z < Chunk.DEPTH; z++) {
+                    int row = layer + z * Chunk.WIDTH;
+                    int x = 0;
+                    while (x < Chunk.WIDTH) {
+                        int blockId = determineBlockId(y, heights[z * Chunk.WIDTH + x]);
+                        int end = x + 1;
+                        while (end < Chunk.WIDTH && determineBlockId(y, heights[z * Chunk.WIDTH + end]) == blockId) {
+                            end++;
+                        }
+                        if (blockId != AIR_ID) {
+                            section.setRange(row + x, row + end, blockId);
+                        }
+                        x = end;
+                    }
+                }
+            }
+        }
+        chunk.finishBulkWrite();
+    }
+
+    // Stadio FEATURES: alberi del chunk e parti di quelli dei vicini che superano il bordo; region dà le altezze
+    public void generateFeatures(Chunk chunk, HeightRegion region) {
+        for (int dz = -1; dz <= 1; dz++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                // Da coordinate del chunk vicino a coordinate di chunk
+                int offsetX = dx * Chunk.WIDTH;
+                int offsetZ = dz * Chunk.DEPTH;
+                int neighborX = dx;
+                int neighborZ = dz;
+                List<TreeFeature> trees = FEATURES.get(chunk.getChunkX() + dx, chunk.getChunkZ() + dz,
+                        () -> planTrees(chunk.getChunkX() + neighborX, chunk.getChunkZ() + neighborZ,
+                                region.getChunkHeights(neighborX, neighborZ)));
+                for (TreeFeature tree : trees) {
+                    if (tree.reaches(offsetX, offsetZ, Chunk.WIDTH, Chunk.DEPTH)) {
+                        placeTree(chunk, tree, offsetX, offsetZ);
                     }
                 }
             }
         }
     }
     
-    private Block.BlockType determineBlockType(int y, int terrainHeight) {
+    private int determineBlockId(int y, int terrainHeight) {
         if (y == 0) 
-            return Block.BlockType.STONE;
+            return STONE_ID;
         if (y < terrainHeight - 1)
-            return Block.BlockType.DIRT;
+            return DIRT_ID;
         if (y < terrainHeight)
-            return Block.BlockType.GRASS;
-        return Block.BlockType.AIR;
+            return GRASS_ID;
+        return AIR_ID;
     }
     
-    public void generateTrees(Chunk chunk) {
-        Random random = new Random(generateChunkSeed(chunk));
+    // Pianifica gli alberi di un chunk a partire dalle sole altezze: niente dipende dai blocchi già scritti
+    public List<TreeFeature> planTrees(int chunkX, int chunkZ, int[] heights) {
+        SplittableRandom random = new SplittableRandom(generateChunkSeed(chunkX, chunkZ));
         
         int maxTrees = 5 + random.nextInt(4);
         int numTrees = random.nextInt(maxTrees + 1);
 
-        numTrees += (int) (Math.abs(Math.sin(chunk.getChunkX() * chunk.getChunkZ() * 0.1)) * 2);
+        // Un albero in più per metà dei chunk, dallo stesso generatore seminato: uguale su ogni JVM
+        numTrees += random.nextInt(2);
         numTrees = Math.min(numTrees, 8);
 
-        int treesGenerated = 0;
+        List<TreeFeature> trees = new ArrayList<>(numTrees);
         int attempts = 0;
         int maxAttempts = 10;
 
-        boolean[][] positionTried = new boolean[Chunk.WIDTH][Chunk.DEPTH];
+        boolean[] positionTried = this.positionTried;
+        Arrays.fill(positionTried, false);
 
-        while (treesGenerated < numTrees && attempts < maxAttempts) {
+        while (trees.size() < numTrees && attempts < maxAttempts) {
             attempts++;
 
             int treeX, treeZ;
             do {
-                treeX = 3 + random.nextInt(Chunk.WIDTH - 6) + random.nextInt(2);
-                treeZ = 3 + random.nextInt(Chunk.DEPTH - 6) + random.nextInt(2);
-            } while (positionTried[treeX][treeZ]);
+                treeX = random.nextInt(Chunk.WIDTH);
+                treeZ = random.nextInt(Chunk.DEPTH);
+            } while (positionTried[treeZ * Chunk.WIDTH + treeX]);
 
-            positionTried[treeX][treeZ] = true;
+            positionTried[treeZ * Chunk.WIDTH + treeX] = true;
 
-            int globalX = chunk.getChunkX() * Chunk.WIDTH + treeX;
-            int globalZ = chunk.getChunkZ() * Chunk.DEPTH + treeZ;
-            int terrainHeight = getTerrainHeight(globalX, globalZ);
+            int terrainHeight = heights[treeZ * Chunk.WIDTH + treeX];
 
-            Block block = chunk.getBlock(treeX, terrainHeight - 1, treeZ);
-            if (block != null && block.getType() == Block.BlockType.GRASS) {
-                if (terrainHeight + 11 < Chunk.HEIGHT && hasTreeSpace(chunk, treeX, terrainHeight, treeZ)) {
-                    generateTree(chunk, treeX, terrainHeight, treeZ, random.nextInt(3));
-                    treesGenerated++;
-                }
+            // Sotto c'è erba solo se la colonna è alta almeno 2
+            if (terrainHeight > 1 && isTreeAreaValid(terrainHeight) && hasTreeSpace(trees, treeX, treeZ)) {
+                trees.add(planTree(treeX, terrainHeight, treeZ, random.nextInt(3), random));
             }
         }
+        return trees;
     }
 
-    private long generateChunkSeed(Chunk chunk) {
-        return (chunk.getChunkX() * 0x5F24F) ^ (chunk.getChunkZ() * 0x9E3779B9L) ^ 0xDEADBEEFL;
+    // Seme del mondo mescolato con la posizione: SplittableRandom rimescola il valore, basta che sia distinto
+    private long generateChunkSeed(int chunkX, int chunkZ) {
+        return noise.getSeed() ^ (chunkX * 0x9E3779B97F4A7C15L) ^ (chunkZ * 0xC2B2AE3D27D4EB4FL);
     }
     
-    private boolean hasTreeSpace(Chunk chunk, int x, int y, int z) {
-        for (int dx = -2; dx <= 2; dx++) {
-            for (int dz = -2; dz <= 2; dz++) {
-                int checkX = x + dx;
-                int checkZ = z + dz;
-                if (isValidPosition(checkX, y, checkZ)) {
-                    Block block = chunk.getBlock(checkX, y, checkZ);
-                    if (block != null && block.getType() == Block.BlockType.WOOD) {
-                        return false;
-                    }
-                }
+    // Nessun altro tronco dello stesso chunk entro 2 blocchi
+    private boolean hasTreeSpace(List<TreeFeature> trees, int x, int z) {
+        for (TreeFeature tree : trees) {
+            if (Math.abs(tree.x - x) <= 2 && Math.abs(tree.z - z) <= 2) {
+                return false;
             }
         }
         return true;
@@ -109,55 +232,59 @@ public class WorldGenerator {
                 z >= 0 && z < Chunk.DEPTH;
     }
     
-    private boolean isTreeAreaValid(int x, int y, int z) {
-        int leafSize = 3;
-        if (x - leafSize < 0 || x + leafSize >= Chunk.WIDTH ||
-                z - leafSize < 0 || z + leafSize >= Chunk.DEPTH ||
-                y + 10 >= Chunk.HEIGHT) {
-            return false;
-        }
-        return true;
+    private boolean isTreeAreaValid(int y) {
+        return y + 11 < Chunk.HEIGHT;
     }
     
-    private void generateTree(Chunk chunk, int x, int y, int z, int treeType) {
-        if (!isValidPosition(x, y, z) || !isTreeAreaValid(x, y, z)) {
-            return;
-        }
-
+    private TreeFeature planTree(int x, int y, int z, int treeType, SplittableRandom random) {
         int trunkHeight;
         int leafSize;
 
         switch (treeType) {
             case 0:
-                trunkHeight = 4 + new Random().nextInt(2);
+                trunkHeight = 4 + random.nextInt(2);
                 leafSize = 1;
                 break;
             case 1:
-                trunkHeight = 5 + new Random().nextInt(2);
+                trunkHeight = 5 + random.nextInt(2);
                 leafSize = 2;
                 break;
             case 2:
             default:
-                trunkHeight = 6 + new Random().nextInt(2);
+                trunkHeight = 6 + random.nextInt(2);
                 leafSize = 2;
                 break;
         }
+        return new TreeFeature(x, y, z, treeType, trunkHeight, leafSize, random.nextLong());
+    }
 
-        for (int i = 0; i < trunkHeight; i++) {
-            chunk.setBlock(x, y + i, z, blockFactory.createWoodBlock());
+    /*
+     * Disegna la parte dell'albero che cade nel chunk; (offsetX, offsetZ) porta le coordinate del chunk
+     * dell'albero in quelle di chunk. I blocchi si fondono per priorità (tronco > foglie > aria, il terreno
+     * non si tocca), quindi il risultato non dipende dall'ordine in cui alberi e chunk vengono disegnati.
+     */
+    private void placeTree(Chunk chunk, TreeFeature tree, int offsetX, int offsetZ) {
+        int x = tree.x + offsetX;
+        int y = tree.y;
+        int z = tree.z + offsetZ;
+
+        for (int i = 0; i < tree.trunkHeight; i++) {
+            merge(chunk, x, y + i, z, WOOD_ID);
         }
 
-        generateLeaves(chunk, x, y + trunkHeight - 2, z, leafSize, treeType);
+        placeLeaves(chunk, tree, x, y + tree.trunkHeight - 2, z);
 
-        chunk.setBlock(x, y + trunkHeight, z, blockFactory.createLeavesBlock());
-        if (treeType == 2 && y + trunkHeight + 1 < Chunk.HEIGHT) {
-            chunk.setBlock(x, y + trunkHeight + 1, z, blockFactory.createLeavesBlock());
+        merge(chunk, x, y + tree.trunkHeight, z, LEAVES_ID);
+        if (tree.type == 2 && y + tree.trunkHeight + 1 < Chunk.HEIGHT) {
+            merge(chunk, x, y + tree.trunkHeight + 1, z, LEAVES_ID);
         }
     }
     
-    private void generateLeaves(Chunk chunk, int x, int y, int z, int leafSize, int treeType) {
-        Random random = new Random();
-        
+    // Il generatore delle foglie avanza allo stesso modo in ogni chunk: conta solo la forma dell'albero
+    private void placeLeaves(Chunk chunk, TreeFeature tree, int x, int y, int z) {
+        SplittableRandom random = new SplittableRandom(tree.leafSeed);
+        int leafSize = tree.leafSize;
+        int treeType = tree.type;
         for (int dx = -leafSize - 1; dx <= leafSize + 1; dx++) {
             for (int dz = -leafSize - 1; dz <= leafSize + 1; dz++) {
                 int maxDistance = Math.abs(dx) + Math.abs(dz);
@@ -180,20 +307,9 @@ public class WorldGenerator {
                         }
                     }
 
-                    if (shouldPlace) {
-                        int leafX = x + dx;
-                        int leafY = y + dy;
-                        int leafZ = z + dz;
-
-                        if (isValidPosition(leafX, leafY, leafZ)) {
-                            if (!(dx == 0 && dz == 0 && dy == 0)) {
-                                Block existingBlock = chunk.getBlock(leafX, leafY, leafZ);
-                                if (existingBlock == null || existingBlock.getType() == Block.BlockType.AIR) {
-                                    if (random.nextDouble() > 0.1 || maxDistance <= leafSize) {
-                                        chunk.setBlock(leafX, leafY, leafZ, blockFactory.createLeavesBlock());
-                                    }
-                                }
-                            }
+                    if (shouldPlace && !(dx == 0 && dz == 0 && dy == 0)) {
+                        if (random.nextDouble() > 0.1 || maxDistance <= leafSize) {
+                            merge(chunk, x + dx, y + dy, z + dz, LEAVES_ID);
                         }
                     }
                 }
@@ -201,14 +317,35 @@ public class WorldGenerator {
         }
     }
 
-    public int getTerrainHeight(int globalX, int globalZ) {
-        double hillFactor = 20.0;
-        double frequency = 0.05;
+    private void merge(Chunk chunk, int x, int y, int z, int blockId) {
+        if (!isValidPosition(x, y, z)) {
+            return;
+        }
+        int current = chunk.getBlockId(x, y, z);
+        if (featurePriority(blockId) > featurePriority(current)) {
+            chunk.setBlockId(x, y, z, blockId);
+        }
+    }
 
-        double noiseX = globalX * frequency;
-        double noiseZ = globalZ * frequency;
+    private static int featurePriority(int blockId) {
+        if (blockId == AIR_ID) {
+            return 0;
+        }
+        if (blockId == LEAVES_ID) {
+            return 1;
+        }
+        if (blockId == WOOD_ID) {
+            return 2;
+        }
+        return 3;
+    }
+
+    // Stesso valore che generateBaseTerrain usa per la colonna, per interrogazioni isolate
+    public int getTerrainHeight(int globalX, int globalZ) {
+        return toTerrainHeight(noise.fractal(globalX, globalZ, OCTAVES, BASE_FREQUENCY, LACUNARITY, GAIN));
+    }
 
-        double height = Math.sin(noiseX) * Math.cos(noiseZ) * hillFactor;
-        return 64 + (int) height;
+    private static int toTerrainHeight(double value) {
+        return SEA_LEVEL + (int) (value * HILL_FACTOR);
     }
 }
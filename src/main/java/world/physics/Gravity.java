@@ -5,7 +5,7 @@ import org.joml.Vector3i;
 import world.World;
 import world.blocks.Block;
 import world.blocks.Block.BlockType;
-import world.chunks.Chunk;
+import world.blocks.BlockRegistry;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -57,7 +57,7 @@ public class Gravity {
     
     public static void processFluidBlock(World world, int x, int y, int z) {
         Block block = world.getBlock(x, y, z);
-        if (block == null || !isFluid(block.getType())) {
+        if (block == null || !block.isFluid()) {
             return;
         }
 
@@ -75,10 +75,9 @@ public class Gravity {
         Block blockBelow = world.getBlock(x, y - 1, z);
         if (blockBelow == null) {
             
-            world.setBlock(x, y - 1, z, new Block(fluidType));
+            world.setBlock(x, y - 1, z, BlockRegistry.get(fluidType));
             setWaterLevel(x, y - 1, z, MAX_WATER_LEVEL); 
             world.addToFluidQueue(x, y - 1, z);
-            markChunkDirty(world, x, y - 1, z);
             waterBlockCount++;
             
             
@@ -119,10 +118,9 @@ public class Gravity {
             int adjX = x + dir[0];
             int adjZ = z + dir[1];
             
-            world.setBlock(adjX, y, adjZ, new Block(fluidType));
+            world.setBlock(adjX, y, adjZ, BlockRegistry.get(fluidType));
             setWaterLevel(adjX, y, adjZ, Math.max(1, currentLevel - 1));
             world.addToFluidQueue(adjX, y, adjZ);
-            markChunkDirty(world, adjX, y, adjZ);
             waterBlockCount++;
             return; 
         }
@@ -143,11 +141,10 @@ public class Gravity {
             Block adjBlock = world.getBlock(adjX, y, adjZ);
             if (adjBlock == null) {
                 
-                world.setBlock(adjX, y, adjZ, new Block(fluidType));
+                world.setBlock(adjX, y, adjZ, BlockRegistry.get(fluidType));
                 int newLevel = Math.max(1, currentLevel - 3); 
                 setWaterLevel(adjX, y, adjZ, newLevel);
                 world.addToFluidQueue(adjX, y, adjZ);
-                markChunkDirty(world, adjX, y, adjZ);
                 waterBlockCount++;
                 propagatedBlocks++;
             }
@@ -161,7 +158,7 @@ public class Gravity {
         int z = (int) Math.floor(position.z);
 
         Block block = world.getBlock(x, y, z);
-        boolean inWater = block != null && block.getType() == BlockType.WATER;
+        boolean inWater = block != null && block.isFluid();
 
         if (inWater) {
             
@@ -204,7 +201,7 @@ public class Gravity {
                 
                 currentX += dir[0] * 0.01f;
                 currentZ += dir[1] * 0.01f;
-            } else if (neighborBlock.getType() == BlockType.WATER) {
+            } else if (neighborBlock.isFluid()) {
                 
                 int neighborLevel = getWaterLevel(nx, y, nz);
                 int currentLevel = getWaterLevel(x, y, z);
@@ -229,19 +226,6 @@ public class Gravity {
         int z = (int) Math.floor(position.z);
 
         Block block = world.getBlock(x, y, z);
-        return block != null && block.getType() == BlockType.WATER;
-    }
-
-    private static boolean isFluid(BlockType type) {
-        return type == BlockType.WATER;
-    }
-
-    private static void markChunkDirty(World world, int x, int y, int z) {
-        int chunkX = Math.floorDiv(x, Chunk.WIDTH);
-        int chunkZ = Math.floorDiv(z, Chunk.DEPTH);
-        Chunk chunk = world.getChunk(chunkX, chunkZ);
-        if (chunk != null) {
-            chunk.setDirty(true);
-        }
+        return block != null && block.isFluid();
     }
 }
@@ -0,0 +1,315 @@
+package world.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import utils.Logger;
+
+/*
+ * Write-ahead log delle modifiche ai blocchi, in segmenti blocks-<n>.wal nella cartella del mondo.
+ * Ogni record è (int x, int y, int z, int id blocco, int CRC32C dei 16 byte precedenti):
+ * un record troncato o corrotto ferma la rilettura del segmento.
+ *
+ * append() copia il record in un buffer e ritorna; il thread del log scrive i record accumulati
+ * e fa un solo fsync per gruppo (group commit), al più ogni groupCommitMillis.
+ * checkpoint() chiude il segmento corrente e ne apre uno nuovo; il vecchio viene cancellato
+ * quando la coda di salvataggio ha reso durevole tutto ciò che conteneva.
+ */
+public class BlockChangeLog implements AutoCloseable {
+    public static final int RECORD_BYTES = 5 * Integer.BYTES;
+
+    private final Path directory;
+    private final long groupCommitMillis;
+    private final int maxBufferedBytes;
+    private final Thread writer;
+    private ByteBuffer buffer;
+    private ByteBuffer spare;
+    private final CRC32C crc = new CRC32C();
+    private FileChannel channel;
+    private int segment;
+    private boolean rotateRequested;
+    private ChunkSaveQueue checkpointQueue;
+    private long appendedSinceCheckpoint;
+    private boolean writing;
+    private boolean running = true;
+    private long firstBufferedMillis;
+    private int budgetWaiters;
+
+    private long recordsWritten;
+    private long groupCommits;
+
+    // Record ancora da rileggere: chiamare replay() prima di creare il log per lo stesso mondo
+    public interface ReplayTarget {
+        void apply(int x, int y, int z, int blockId);
+    }
+
+    public BlockChangeLog(Path directory, long groupCommitMillis, int maxBufferedBytes) throws IOException {
+        this.directory = directory;
+        this.groupCommitMillis = Math.max(0, groupCommitMillis);
+        this.maxBufferedBytes = Math.max(RECORD_BYTES, maxBufferedBytes / RECORD_BYTES * RECORD_BYTES);
+        this.buffer = ByteBuffer.allocate(this.maxBufferedBytes);
+        this.spare = ByteBuffer.allocate(this.maxBufferedBytes);
+        Files.createDirectories(directory);
+        this.segment = lastSegment(directory) + 1;
+        this.channel = openSegment(segment);
+        writer = new Thread(this::runWriter, "block-log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // Applica in ordine i record di tutti i segmenti rimasti; restituisce quanti record validi ha letto
+    public static long replay(Path directory, ReplayTarget target) throws IOException {
+        long records = 0;
+        for (Path path : listSegments(directory)) {
+            ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(path));
+            CRC32C check = new CRC32C();
+            while (data.remaining() >= RECORD_BYTES) {
+                check.reset();
+                check.update(data.array(), data.position(), RECORD_BYTES - Integer.BYTES);
+                int x = data.getInt();
+                int y = data.getInt();
+                int z = data.getInt();
+                int blockId = data.getInt();
+                if (data.getInt() != (int) check.getValue()) {
+                    Logger.info("Record corrotto in " + path.getFileName() + ": rilettura del segmento interrotta");
+                    break;
+                }
+                target.apply(x, y, z, blockId);
+                records++;
+            }
+        }
+        return records;
+    }
+
+    // Da chiamare quando quanto riletto è stato salvato in modo durevole
+    public static void deleteSegments(Path directory) throws IOException {
+        for (Path path : listSegments(directory)) {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    public synchronized void append(int x, int y, int z, int blockId) {
+        if (buffer.remaining() < RECORD_BYTES) {
+            budgetWaiters++;
+            try {
+                while (running && buffer.remaining() < RECORD_BYTES) {
+                    notifyAll();
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                budgetWaiters--;
+            }
+        }
+        if (buffer.position() == 0) {
+            firstBufferedMillis = System.currentTimeMillis();
+            notifyAll();
+        }
+        int start = buffer.position();
+        buffer.putInt(x).putInt(y).putInt(z).putInt(blockId);
+        crc.reset();
+        crc.update(buffer.array(), start, RECORD_BYTES - Integer.BYTES);
+        buffer.putInt((int) crc.getValue());
+        appendedSinceCheckpoint++;
+    }
+
+    // Non blocca: il thread del log chiude il segmento e lo cancella quando saveQueue ha reso durevoli i chunk.
+    // Le modifiche vanno segnalate a saveQueue prima di append(), altrimenti il checkpoint potrebbe non coprirle
+    public synchronized void checkpoint(ChunkSaveQueue saveQueue) {
+        checkpointQueue = saveQueue;
+        rotateRequested = true;
+        appendedSinceCheckpoint = 0;
+        notifyAll();
+    }
+
+    public synchronized long getAppendedSinceCheckpoint() {
+        return appendedSinceCheckpoint;
+    }
+
+    private void runWriter() {
+        while (true) {
+            ByteBuffer batch;
+            FileChannel target;
+            ChunkSaveQueue rotateFor;
+            synchronized (this) {
+                try {
+                    while (running && !rotateRequested && !isCommitDue()) {
+                        long wait = buffer.position() == 0 ? 0
+                                : Math.max(1, firstBufferedMillis + groupCommitMillis - System.currentTimeMillis());
+                        wait(wait);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (!running && buffer.position() == 0 && !rotateRequested) {
+                    return;
+                }
+                batch = buffer;
+                buffer = spare;
+                spare = batch;
+                target = channel;
+                rotateFor = rotateRequested ? checkpointQueue : null;
+                rotateRequested = false;
+                writing = true;
+                // Chi aspettava spazio nel buffer può ripartire subito
+                notifyAll();
+            }
+
+            int records = batch.position() / RECORD_BYTES;
+            batch.flip();
+            try {
+                while (batch.hasRemaining()) {
+                    target.write(batch);
+                }
+                if (records > 0) {
+                    target.force(false);
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            batch.clear();
+
+            Path sealed = null;
+            synchronized (this) {
+                recordsWritten += records;
+                if (records > 0) {
+                    groupCommits++;
+                }
+                if (rotateFor != null) {
+                    sealed = rotate();
+                }
+                writing = false;
+                notifyAll();
+            }
+            if (sealed != null) {
+                Path segmentToDelete = sealed;
+                rotateFor.requestCheckpoint(() -> {
+                    try {
+                        Files.deleteIfExists(segmentToDelete);
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                });
+            }
+        }
+    }
+
+    private boolean isCommitDue() {
+        return buffer.position() > 0
+                && (System.currentTimeMillis() - firstBufferedMillis >= groupCommitMillis || budgetWaiters > 0);
+    }
+
+    // Restituisce il segmento appena chiuso
+    private Path rotate() {
+        Path sealed = segmentPath(directory, segment);
+        try {
+            channel.close();
+            segment++;
+            channel = openSegment(segment);
+            return sealed;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private FileChannel openSegment(int index) throws IOException {
+        return FileChannel.open(segmentPath(directory, index), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    private static Path segmentPath(Path directory, int index) {
+        return directory.resolve("blocks-" + index + ".wal");
+    }
+
+    private static List<Path> listSegments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(path -> segmentIndex(path) >= 0).forEach(segments::add);
+        }
+        segments.sort((a, b) -> Integer.compare(segmentIndex(a), segmentIndex(b)));
+        return segments;
+    }
+
+    private static int lastSegment(Path directory) throws IOException {
+        int last = -1;
+        for (Path path : listSegments(directory)) {
+            last = Math.max(last, segmentIndex(path));
+        }
+        return last;
+    }
+
+    private static int segmentIndex(Path path) {
+        String name = path.getFileName().toString();
+        if (!name.startsWith("blocks-") || !name.endsWith(".wal")) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(name.substring("blocks-".length(), name.length() - ".wal".length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // Attende che i record già accodati siano scritti e sincronizzati
+    public synchronized void flush() {
+        while ((buffer.position() > 0 || writing) && running) {
+            firstBufferedMillis = Long.MIN_VALUE / 2;
+            notifyAll();
+            try {
+                wait(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    public synchronized long getRecordsWritten() {
+        return recordsWritten;
+    }
+
+    public synchronized long getGroupCommits() {
+        return groupCommits;
+    }
+
+    public synchronized String summary() {
+        return String.format("%d record, %d fsync (%.1f record per fsync)",
+                recordsWritten, groupCommits, groupCommits == 0 ? 0f : recordsWritten / (float) groupCommits);
+    }
+
+    // I segmenti restano su disco: cancellarli con deleteSegments() solo dopo aver chiuso la coda di salvataggio
+    @Override
+    public void close() {
+        flush();
+        synchronized (this) {
+            running = false;
+            notifyAll();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package world.storage;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import world.chunks.Chunk;
+import world.chunks.ChunkLoadScheduler;
+import world.chunks.ChunkPosition;
+
+/*
+ * Cache LRU dei chunk scaricati, codificati con ChunkCodec ed entro un budget di byte.
+ * Un chunk ricaricato viene tolto dalla cache: tornerà dentro, aggiornato, al prossimo scaricamento.
+ * Scritta dal thread principale e letta dai worker di caricamento, quindi sincronizzata.
+ */
+public class ChunkCache implements ChunkLoadScheduler.ChunkSource {
+    private final Map<ChunkPosition, byte[]> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long budgetBytes;
+    private long bytesHeld;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public ChunkCache(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    public void put(Chunk chunk) {
+        put(chunk.getChunkX(), chunk.getChunkZ(), ChunkCodec.encode(chunk));
+    }
+
+    // data deve essere l'output di ChunkCodec.encode per lo stesso chunk
+    public synchronized void put(int chunkX, int chunkZ, byte[] data) {
+        byte[] previous = entries.put(new ChunkPosition(chunkX, chunkZ), data);
+        if (previous != null) {
+            bytesHeld -= previous.length;
+        }
+        bytesHeld += data.length;
+        evictOverBudget();
+    }
+
+    // Ripristina il chunk QUEUED dalla cache; false se non c'è o se è stato annullato nel frattempo
+    @Override
+    public boolean load(Chunk chunk) {
+        byte[] data;
+        synchronized (this) {
+            data = entries.remove(new ChunkPosition(chunk.getChunkX(), chunk.getChunkZ()));
+            if (data == null) {
+                misses++;
+                return false;
+            }
+            bytesHeld -= data.length;
+            hits++;
+        }
+        if (chunk.restore(ChunkCodec.decode(ByteBuffer.wrap(data)))) {
+            return true;
+        }
+        // Caricamento annullato: i dati (con le modifiche del giocatore) restano in cache
+        synchronized (this) {
+            if (entries.putIfAbsent(new ChunkPosition(chunk.getChunkX(), chunk.getChunkZ()), data) == null) {
+                bytesHeld += data.length;
+                evictOverBudget();
+            }
+        }
+        return false;
+    }
+
+    private void evictOverBudget() {
+        Iterator<byte[]> iterator = entries.values().iterator();
+        while (bytesHeld > budgetBytes && iterator.hasNext()) {
+            bytesHeld -= iterator.next().length;
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized void setBudgetBytes(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+        evictOverBudget();
+    }
+
+    public synchronized long getBytesHeld() {
+        return bytesHeld;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    // Percentuale sui caricamenti che hanno interrogato la cache
+    public synchronized float getHitPercent() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0f : hits * 100f / lookups;
+    }
+
+    public synchronized String summary() {
+        return String.format("hit %.1f%% (%d/%d), %d chunk, %.1f KB, %d evicted",
+                getHitPercent(), hits, hits + misses, entries.size(), bytesHeld / 1024f, evictions);
+    }
+}
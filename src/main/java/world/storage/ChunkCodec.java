@@ -0,0 +1,199 @@
+package world.storage;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import world.chunks.Chunk;
+import world.chunks.ChunkSection;
+import world.chunks.PaletteStorage;
+
+/*
+ * Formato compatto dei blocchi di un chunk, usato dalla cache in memoria e dai file su disco.
+ *
+ * byte versione, varint chunkX e chunkZ (zigzag), short maschera delle sezioni presenti;
+ * per ogni sezione: varint dimensione palette, id della palette (varint), poi coppie
+ * (varint lunghezza, varint indice palette) che coprono le 4096 celle in ordine y, z, x.
+ * Gli strati orizzontali uniformi diventano una sola coppia.
+ */
+public class ChunkCodec {
+    public static final int VERSION = 1;
+
+    private static final ThreadLocal<Encoder> ENCODERS = ThreadLocal.withInitial(Encoder::new);
+    private static final ThreadLocal<int[]> DECODED_CELLS = ThreadLocal.withInitial(() -> new int[ChunkSection.VOLUME]);
+
+    public static byte[] encode(Chunk chunk) {
+        return encode(chunk.getChunkX(), chunk.getChunkZ(), chunk.getSections());
+    }
+
+    // sections è l'array del chunk preso una sola volta: resta valido anche se il chunk viene rilasciato
+    public static byte[] encode(int chunkX, int chunkZ, ChunkSection[] sections) {
+        Encoder encoder = ENCODERS.get();
+        encoder.reset();
+        encoder.writeByte(VERSION);
+        encoder.writeVarInt(zigzag(chunkX));
+        encoder.writeVarInt(zigzag(chunkZ));
+
+        int sectionMask = 0;
+        for (int i = 0; i < Chunk.SECTION_COUNT; i++) {
+            if (sections[i] != null) {
+                sectionMask |= 1 << i;
+            }
+        }
+        encoder.writeByte(sectionMask >>> 8);
+        encoder.writeByte(sectionMask);
+
+        for (int i = 0; i < Chunk.SECTION_COUNT; i++) {
+            ChunkSection section = sections[i];
+            if (section != null) {
+                encoder.writeSection(section);
+            }
+        }
+        return encoder.toByteArray();
+    }
+
+    // true se i dati, dalla posizione corrente del buffer, sono del chunk indicato; il buffer non avanza
+    public static boolean isAt(ByteBuffer buffer, int chunkX, int chunkZ) {
+        ByteBuffer header = buffer.duplicate();
+        header.get();
+        return unzigzag(readVarInt(header)) == chunkX && unzigzag(readVarInt(header)) == chunkZ;
+    }
+
+    // Legge dalla posizione corrente del buffer (anche mappato) e la fa avanzare
+    public static ChunkSection[] decode(ByteBuffer buffer) {
+        int version = buffer.get() & 0xFF;
+        if (version != VERSION) {
+            throw new IllegalStateException("Versione chunk non supportata: " + version);
+        }
+        readVarInt(buffer);
+        readVarInt(buffer);
+        int sectionMask = (buffer.get() & 0xFF) << 8 | (buffer.get() & 0xFF);
+
+        ChunkSection[] sections = new ChunkSection[Chunk.SECTION_COUNT];
+        int[] palette = new int[16];
+        int[] cells = DECODED_CELLS.get();
+        for (int i = 0; i < Chunk.SECTION_COUNT; i++) {
+            if ((sectionMask & (1 << i)) != 0) {
+                sections[i] = decodeSection(buffer, palette, cells);
+            }
+        }
+        return sections;
+    }
+
+    // Le coppie diventano indici nella palette, impacchettati una sola volta con la palette già completa
+    private static ChunkSection decodeSection(ByteBuffer buffer, int[] palette, int[] cells) {
+        int paletteSize = readVarInt(buffer);
+        if (paletteSize <= 0 || paletteSize > ChunkSection.VOLUME) {
+            throw new IllegalStateException("Palette di sezione non valida: " + paletteSize);
+        }
+        if (palette.length < paletteSize) {
+            palette = new int[paletteSize];
+        }
+        for (int p = 0; p < paletteSize; p++) {
+            palette[p] = readVarInt(buffer);
+        }
+
+        int index = 0;
+        while (index < ChunkSection.VOLUME) {
+            int length = readVarInt(buffer);
+            int paletteIndex = readVarInt(buffer);
+            if (length <= 0 || length > ChunkSection.VOLUME - index || paletteIndex < 0 || paletteIndex >= paletteSize) {
+                throw new IllegalStateException("Sezione corrotta alla cella " + index);
+            }
+            Arrays.fill(cells, index, index + length, paletteIndex);
+            index += length;
+        }
+        return ChunkSection.of(palette, paletteSize, cells);
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static class Encoder {
+        private byte[] bytes = new byte[4096];
+        private int size;
+        private final int[] palette = new int[ChunkSection.VOLUME];
+        private final int[] cells = new int[ChunkSection.VOLUME];
+
+        void reset() {
+            size = 0;
+        }
+
+        void writeSection(ChunkSection section) {
+            // Primo passaggio: palette locale con i soli id presenti
+            PaletteStorage storage = section.getStorage();
+            int paletteSize = 0;
+            int lastId = -1;
+            int lastIndex = -1;
+            for (int cell = 0; cell < ChunkSection.VOLUME; cell++) {
+                int blockId = storage.get(cell);
+                if (blockId != lastId) {
+                    lastIndex = indexOf(blockId, paletteSize);
+                    if (lastIndex < 0) {
+                        lastIndex = paletteSize;
+                        palette[paletteSize++] = blockId;
+                    }
+                    lastId = blockId;
+                }
+                cells[cell] = lastIndex;
+            }
+
+            writeVarInt(paletteSize);
+            for (int p = 0; p < paletteSize; p++) {
+                writeVarInt(palette[p]);
+            }
+            int start = 0;
+            for (int cell = 1; cell <= ChunkSection.VOLUME; cell++) {
+                if (cell == ChunkSection.VOLUME || cells[cell] != cells[start]) {
+                    writeVarInt(cell - start);
+                    writeVarInt(cells[start]);
+                    start = cell;
+                }
+            }
+        }
+
+        private int indexOf(int blockId, int paletteSize) {
+            for (int p = 0; p < paletteSize; p++) {
+                if (palette[p] == blockId) {
+                    return p;
+                }
+            }
+            return -1;
+        }
+
+        void writeByte(int value) {
+            if (size == bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        void writeVarInt(int value) {
+            while ((value & ~0x7F) != 0) {
+                writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            writeByte(value);
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+    }
+}
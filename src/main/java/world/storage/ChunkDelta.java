@@ -0,0 +1,131 @@
+package world.storage;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import world.blocks.BlockRegistry;
+import world.chunks.Chunk;
+import world.chunks.ChunkSection;
+import world.generation.WorldGenerator;
+
+/*
+ * Salvataggio delle sole celle diverse dal terreno generato.
+ * Indice locale = y * 256 + z * 16 + x, cioè sezione * 4096 + indice interno della sezione.
+ *
+ * byte FORMAT, varint versione del generatore, varint chunkX e chunkZ (zigzag), long seme del mondo,
+ * varint numero di celle, poi coppie (varint distanza dall'indice precedente, varint id blocco).
+ * Il caricamento rigenera il chunk e applica le celle: serve un generatore deterministico.
+ */
+public class ChunkDelta {
+    // Distinto da ChunkCodec.VERSION: il primo byte dice come leggere i dati di un chunk
+    public static final int FORMAT = 0x81;
+
+    private static final ThreadLocal<int[]> SCRATCH = ThreadLocal.withInitial(() -> new int[1024]);
+
+    public static byte[] encode(int chunkX, int chunkZ, ChunkSection[] sections) {
+        Chunk baseline = new Chunk(chunkX, chunkZ);
+        baseline.generate();
+
+        int[] changes = SCRATCH.get();
+        int count = 0;
+        for (int i = 0; i < Chunk.SECTION_COUNT; i++) {
+            ChunkSection current = sections[i];
+            ChunkSection generated = baseline.getSection(i);
+            if (current == null && generated == null) {
+                continue;
+            }
+            for (int cell = 0; cell < ChunkSection.VOLUME; cell++) {
+                int blockId = blockId(current, cell);
+                if (blockId != blockId(generated, cell)) {
+                    if (count + 2 > changes.length) {
+                        changes = Arrays.copyOf(changes, changes.length * 2);
+                        SCRATCH.set(changes);
+                    }
+                    changes[count++] = i * ChunkSection.VOLUME + cell;
+                    changes[count++] = blockId;
+                }
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(32 + count / 2 * 8);
+        buffer.put((byte) FORMAT);
+        writeVarInt(buffer, WorldGenerator.VERSION);
+        writeVarInt(buffer, zigzag(chunkX));
+        writeVarInt(buffer, zigzag(chunkZ));
+        buffer.putLong(WorldGenerator.getWorldSeed());
+        writeVarInt(buffer, count / 2);
+        int previous = 0;
+        for (int c = 0; c < count; c += 2) {
+            writeVarInt(buffer, changes[c] - previous);
+            writeVarInt(buffer, changes[c + 1]);
+            previous = changes[c];
+        }
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    // true se i dati, dalla posizione corrente del buffer, sono del chunk indicato; il buffer non avanza
+    public static boolean isAt(ByteBuffer buffer, int chunkX, int chunkZ) {
+        ByteBuffer header = buffer.duplicate();
+        header.get();
+        readVarInt(header);
+        return unzigzag(readVarInt(header)) == chunkX && unzigzag(readVarInt(header)) == chunkZ;
+    }
+
+    // null se i dati sono di un'altra versione del generatore o di un altro seme e non si possono applicare
+    public static ChunkSection[] decode(ByteBuffer buffer) {
+        int format = buffer.get() & 0xFF;
+        if (format != FORMAT) {
+            throw new IllegalStateException("Formato delta non supportato: " + format);
+        }
+        int generatorVersion = readVarInt(buffer);
+        int chunkX = unzigzag(readVarInt(buffer));
+        int chunkZ = unzigzag(readVarInt(buffer));
+        if (generatorVersion != WorldGenerator.VERSION || buffer.getLong() != WorldGenerator.getWorldSeed()) {
+            return null;
+        }
+
+        Chunk chunk = new Chunk(chunkX, chunkZ);
+        chunk.generate();
+        int count = readVarInt(buffer);
+        int index = 0;
+        for (int c = 0; c < count; c++) {
+            index += readVarInt(buffer);
+            int blockId = readVarInt(buffer);
+            chunk.setBlockId(index & 15, index >>> 8, (index >>> 4) & 15, blockId);
+        }
+        chunk.optimizeSections();
+        return chunk.getSections();
+    }
+
+    private static int blockId(ChunkSection section, int cell) {
+        return section == null ? BlockRegistry.AIR_ID : section.getStorage().get(cell);
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarInt(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
@@ -0,0 +1,217 @@
+package world.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import rendering.meshes.MeshData;
+import world.chunks.Chunk;
+import world.chunks.ChunkMesh;
+
+/*
+ * Cache su disco delle mesh complete dei chunk, in file di regione m.<x>.<z>.mesh.
+ * Ogni voce porta versione, modalità di meshing e hash del contenuto dello snapshot:
+ * se uno dei tre non corrisponde la voce è vecchia e la mesh va ricostruita.
+ *
+ * int MAGIC, int VERSION, int modalità, long hash, int maschera delle sezioni con geometria;
+ * per sezione: int vertici, int tipo indici (0 short, 1 int), int indici, poi i dati,
+ * tutto nell'ordine dei byte nativo e allineato a 4 byte. I buffer restituiti da load()
+ * sono viste della mappatura del file e vanno direttamente a glBufferData.
+ * I file sono append-only (una voce letta non viene mai sovrascritta mentre è in upload):
+ * arrivati a MAX_REGION_BYTES non si scrivono altre voci, e all'apertura successiva il file viene azzerato.
+ */
+public class ChunkMeshCache implements AutoCloseable {
+    // Da incrementare quando cambiano il formato dei vertici o la disposizione dell'atlas
+    public static final int VERSION = 1;
+    private static final int MAGIC = 0x4D455348;
+    private static final long MAX_REGION_BYTES = 64L * 1024 * 1024;
+
+    private final Path directory;
+    private final Map<Long, RegionFile> regions = new HashMap<>();
+    private final Set<Long> missingRegions = new HashSet<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong staleEntries = new AtomicLong();
+    private final AtomicLong bytesStored = new AtomicLong();
+    private final AtomicLong skippedWrites = new AtomicLong();
+
+    public ChunkMeshCache(Path directory) {
+        this.directory = directory;
+    }
+
+    // null se non c'è una voce valida per questo contenuto
+    public MeshData[] load(int chunkX, int chunkZ, ChunkMesh.MeshingMode mode, long contentHash) {
+        try {
+            RegionFile region = getRegion(chunkX, chunkZ, false);
+            ByteBuffer entry = region != null ? region.read(localCoordinate(chunkX), localCoordinate(chunkZ)) : null;
+            if (entry == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            entry.order(ByteOrder.nativeOrder());
+            if (entry.getInt() != MAGIC || entry.getInt() != VERSION || entry.getInt() != mode.ordinal()
+                    || entry.getLong() != contentHash) {
+                staleEntries.incrementAndGet();
+                return null;
+            }
+
+            int sectionMask = entry.getInt();
+            MeshData[] result = new MeshData[Chunk.SECTION_COUNT];
+            for (int i = 0; i < Chunk.SECTION_COUNT; i++) {
+                if ((sectionMask & (1 << i)) == 0) {
+                    continue;
+                }
+                int vertexCount = entry.getInt();
+                boolean intIndices = entry.getInt() != 0;
+                int indexCount = entry.getInt();
+                IntBuffer vertices = take(entry, vertexCount * Integer.BYTES).asIntBuffer();
+                if (intIndices) {
+                    result[i] = MeshData.mapped(vertices, null, take(entry, indexCount * Integer.BYTES).asIntBuffer());
+                } else {
+                    ShortBuffer indices = take(entry, indexCount * Short.BYTES).asShortBuffer();
+                    entry.position(align(entry.position()));
+                    result[i] = MeshData.mapped(vertices, indices, null);
+                }
+            }
+            hits.incrementAndGet();
+            return result;
+        } catch (IOException | RuntimeException e) {
+            // Voce illeggibile: la mesh viene semplicemente ricostruita
+            e.printStackTrace();
+            staleEntries.incrementAndGet();
+            return null;
+        }
+    }
+
+    // Chiamato dal worker di meshing prima dell'upload, finché i buffer di data sono ancora validi
+    public void store(int chunkX, int chunkZ, ChunkMesh.MeshingMode mode, long contentHash, MeshData[] data) {
+        RegionFile region;
+        try {
+            region = getRegion(chunkX, chunkZ, true);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        int size = 5 * Integer.BYTES + Long.BYTES;
+        int sectionMask = 0;
+        for (int i = 0; i < Chunk.SECTION_COUNT; i++) {
+            MeshData section = data[i];
+            if (section != null) {
+                sectionMask |= 1 << i;
+                size += 3 * Integer.BYTES + align(section.getSizeBytes());
+            }
+        }
+
+        // Il file non si può azzerare finché è aperto: le mesh già lette ne sono viste
+        if (region.getSizeBytes() + size > MAX_REGION_BYTES) {
+            skippedWrites.incrementAndGet();
+            return;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.nativeOrder());
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(mode.ordinal()).putLong(contentHash).putInt(sectionMask);
+        for (int i = 0; i < Chunk.SECTION_COUNT; i++) {
+            MeshData section = data[i];
+            if (section == null) {
+                continue;
+            }
+            IntBuffer vertices = section.getVertices();
+            ShortBuffer shortIndices = section.getShortIndices();
+            IntBuffer intIndices = section.getIntIndices();
+            int vertexCount = vertices.remaining();
+            int indexCount = shortIndices != null ? shortIndices.remaining() : intIndices.remaining();
+            buffer.putInt(vertexCount).putInt(shortIndices != null ? 0 : 1).putInt(indexCount);
+
+            int start = buffer.position();
+            buffer.asIntBuffer().put(vertices);
+            buffer.position(start + vertexCount * Integer.BYTES);
+            start = buffer.position();
+            if (shortIndices != null) {
+                buffer.asShortBuffer().put(shortIndices);
+                buffer.position(align(start + indexCount * Short.BYTES));
+            } else {
+                buffer.asIntBuffer().put(intIndices);
+                buffer.position(start + indexCount * Integer.BYTES);
+            }
+        }
+
+        try {
+            region.write(localCoordinate(chunkX), localCoordinate(chunkZ), buffer.array());
+            bytesStored.addAndGet(size);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static ByteBuffer take(ByteBuffer entry, int bytes) {
+        ByteBuffer slice = entry.slice(entry.position(), bytes).order(ByteOrder.nativeOrder());
+        entry.position(entry.position() + bytes);
+        return slice;
+    }
+
+    private static int align(int bytes) {
+        return (bytes + 3) & ~3;
+    }
+
+    private synchronized RegionFile getRegion(int chunkX, int chunkZ, boolean create) throws IOException {
+        int regionX = Math.floorDiv(chunkX, RegionFile.SIZE);
+        int regionZ = Math.floorDiv(chunkZ, RegionFile.SIZE);
+        long key = ((long) regionX << 32) | (regionZ & 0xFFFFFFFFL);
+
+        RegionFile region = regions.get(key);
+        if (region != null) {
+            return region;
+        }
+        if (!create && missingRegions.contains(key)) {
+            return null;
+        }
+        Path path = directory.resolve("m." + regionX + "." + regionZ + ".mesh");
+        if (!create && !Files.exists(path)) {
+            missingRegions.add(key);
+            return null;
+        }
+        Files.createDirectories(directory);
+        if (Files.exists(path) && Files.size(path) > MAX_REGION_BYTES) {
+            Files.delete(path);
+        }
+        region = new RegionFile(path, false);
+        regions.put(key, region);
+        missingRegions.remove(key);
+        return region;
+    }
+
+    private static int localCoordinate(int chunkCoordinate) {
+        return Math.floorMod(chunkCoordinate, RegionFile.SIZE);
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public String summary() {
+        long lookups = hits.get() + misses.get() + staleEntries.get();
+        return String.format("hit %d/%d, %d vecchie ricostruite, %.1f KB scritti, %d non scritte per limite di dimensione",
+                hits.get(), lookups, staleEntries.get(), bytesStored.get() / 1024f, skippedWrites.get());
+    }
+
+    @Override
+    public synchronized void close() {
+        for (RegionFile region : regions.values()) {
+            try {
+                region.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        regions.clear();
+    }
+}
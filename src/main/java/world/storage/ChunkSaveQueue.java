@@ -0,0 +1,319 @@
+package world.storage;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import world.chunks.Chunk;
+import world.chunks.ChunkPosition;
+import world.chunks.ChunkSection;
+
+/*
+ * Salvataggio write-behind dei chunk modificati.
+ * markModified() segna solo la posizione: più modifiche allo stesso chunk prima della scrittura
+ * diventano un solo salvataggio. Un thread in background attende saveDelayMillis dalla prima
+ * modifica, prende tutto il lotto e per ogni chunk una sola istantanea copy-on-write
+ * (Chunk.takeSaveSnapshot()), poi serializza e scrive ordinando per posizione.
+ * I chunk scaricati arrivano già serializzati con submit(). Byte serializzati e istantanee
+ * contano nel budget e, se il budget è pieno, submit() attende che il thread di scrittura liberi spazio.
+ * Un salvataggio fallito torna in coda e viene ritentato; fino ad allora nessun checkpoint viene eseguito.
+ */
+public class ChunkSaveQueue {
+    private static final long RETRY_DELAY_MILLIS = 1000;
+
+    private final RegionStore store;
+    private final Map<ChunkPosition, PendingSave> pending = new LinkedHashMap<>();
+    private final List<Runnable> checkpointCallbacks = new ArrayList<>();
+    private final Thread writer;
+    private final long maxPendingBytes;
+    private final long saveDelayMillis;
+    private long pendingBytes;
+    private long firstPendingMillis;
+    private boolean writing;
+    private int budgetWaiters;
+    private boolean running = true;
+    // Salvataggi falliti in coda: nuovo tentativo non prima di retryAtMillis
+    private boolean retrying;
+    private long retryAtMillis;
+    private long failedBatches;
+
+    private long bytesWritten;
+    private long chunksWritten;
+    private long coalescedWrites;
+    private long backpressureWaits;
+    private long rateWindowStart = System.nanoTime();
+    private long rateWindowBytes;
+    private float bytesPerSecond;
+
+    public ChunkSaveQueue(RegionStore store, long maxPendingBytes, long saveDelayMillis) {
+        this.store = store;
+        this.maxPendingBytes = Math.max(1, maxPendingBytes);
+        this.saveDelayMillis = Math.max(0, saveDelayMillis);
+        writer = new Thread(this::runWriter, "chunk-saver");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // Dal percorso di World.setBlock: segna la posizione, l'istantanea la prende il thread di scrittura
+    public synchronized void markModified(Chunk chunk) {
+        ChunkPosition position = new ChunkPosition(chunk.getChunkX(), chunk.getChunkZ());
+        PendingSave previous = pending.get(position);
+        if (previous != null && previous.chunk == chunk) {
+            coalescedWrites++;
+            return;
+        }
+        enqueue(position, new PendingSave(chunk, null, null, 0));
+    }
+
+    // Per i chunk che stanno per essere scaricati: data è già l'output di ChunkCodec.encode
+    public synchronized void submit(int chunkX, int chunkZ, byte[] data) {
+        // Mentre si ritenta un salvataggio fallito il budget non si libera: niente attesa
+        if (running && !retrying && pendingBytes + data.length > maxPendingBytes && pendingBytes > 0) {
+            backpressureWaits++;
+            budgetWaiters++;
+            try {
+                while (running && !retrying && pendingBytes + data.length > maxPendingBytes && pendingBytes > 0) {
+                    notifyAll();
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                budgetWaiters--;
+            }
+        }
+        enqueue(new ChunkPosition(chunkX, chunkZ), new PendingSave(null, null, data, data.length));
+    }
+
+    // onDurable viene eseguito dal thread di scrittura quando tutto ciò che era in coda è scritto e sincronizzato
+    public synchronized void requestCheckpoint(Runnable onDurable) {
+        checkpointCallbacks.add(onDurable);
+        notifyAll();
+    }
+
+    private void enqueue(ChunkPosition position, PendingSave save) {
+        PendingSave previous = pending.put(position, save);
+        if (previous != null) {
+            coalescedWrites++;
+            pendingBytes -= previous.bytes;
+        } else if (pending.size() == 1) {
+            firstPendingMillis = System.currentTimeMillis();
+        }
+        pendingBytes += save.bytes;
+        notifyAll();
+    }
+
+    private void runWriter() {
+        List<Map.Entry<ChunkPosition, PendingSave>> batch = new ArrayList<>();
+        List<Map.Entry<ChunkPosition, PendingSave>> failed = new ArrayList<>();
+        List<Runnable> callbacks = new ArrayList<>();
+        while (true) {
+            synchronized (this) {
+                try {
+                    while (running && !isBatchDue()) {
+                        long wait = pending.isEmpty() && checkpointCallbacks.isEmpty() ? 0
+                                : Math.max(1, Math.max(firstPendingMillis + saveDelayMillis, retryAtMillis) - System.currentTimeMillis());
+                        wait(wait);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (pending.isEmpty() && checkpointCallbacks.isEmpty() || !running && retrying) {
+                    // In chiusura i salvataggi ancora falliti restano nel log dei blocchi
+                    if (!running) {
+                        return;
+                    }
+                    continue;
+                }
+                batch.addAll(pending.entrySet());
+                pending.clear();
+                callbacks.addAll(checkpointCallbacks);
+                checkpointCallbacks.clear();
+                writing = true;
+            }
+
+            // Una sola istantanea per chunk, presa qui e non a ogni modifica; conta nel budget fino alla scrittura
+            long snapshotBytes = 0;
+            for (Map.Entry<ChunkPosition, PendingSave> entry : batch) {
+                PendingSave save = entry.getValue();
+                if (save.chunk != null) {
+                    ChunkSection[] sections = save.chunk.takeSaveSnapshot();
+                    // null: scaricato nel frattempo, i suoi byte sono arrivati con submit()
+                    save = sections == null ? null : new PendingSave(null, sections, null, sizeOf(sections));
+                    entry.setValue(save);
+                    if (save != null) {
+                        snapshotBytes += save.bytes;
+                    }
+                }
+            }
+            synchronized (this) {
+                pendingBytes += snapshotBytes;
+            }
+
+            // Le regioni vicine sono nello stesso file: scrittura in ordine di posizione
+            batch.removeIf(e -> e.getValue() == null);
+            batch.sort(Comparator.comparingInt((Map.Entry<ChunkPosition, PendingSave> e) -> Math.floorDiv(e.getKey().getX(), RegionFile.SIZE))
+                    .thenComparingInt(e -> Math.floorDiv(e.getKey().getZ(), RegionFile.SIZE))
+                    .thenComparingInt(e -> e.getKey().getZ())
+                    .thenComparingInt(e -> e.getKey().getX()));
+            long written = 0;
+            int chunks = 0;
+            long freedBytes = 0;
+            for (Map.Entry<ChunkPosition, PendingSave> entry : batch) {
+                PendingSave save = entry.getValue();
+                int x = entry.getKey().getX();
+                int z = entry.getKey().getZ();
+                int bytes = save.data != null ? store.save(x, z, save.data) : store.save(x, z, save.sections);
+                if (bytes >= 0) {
+                    written += bytes;
+                    chunks++;
+                    freedBytes += save.bytes;
+                } else {
+                    failed.add(entry);
+                }
+            }
+            batch.clear();
+            boolean complete = failed.isEmpty() && (callbacks.isEmpty() || store.flush());
+            if (complete) {
+                for (Runnable callback : callbacks) {
+                    callback.run();
+                }
+                callbacks.clear();
+            }
+
+            synchronized (this) {
+                if (!complete) {
+                    // Di nuovo in coda, salvo che nel frattempo sia arrivato un salvataggio più recente
+                    for (Map.Entry<ChunkPosition, PendingSave> entry : failed) {
+                        if (pending.putIfAbsent(entry.getKey(), entry.getValue()) != null) {
+                            freedBytes += entry.getValue().bytes;
+                        }
+                    }
+                    failed.clear();
+                    // I checkpoint aspettano che i salvataggi falliti riescano
+                    checkpointCallbacks.addAll(0, callbacks);
+                    callbacks.clear();
+                    retrying = true;
+                    retryAtMillis = System.currentTimeMillis() + RETRY_DELAY_MILLIS;
+                    failedBatches++;
+                } else {
+                    retrying = false;
+                }
+                pendingBytes -= freedBytes;
+                bytesWritten += written;
+                chunksWritten += chunks;
+                rateWindowBytes += written;
+                updateRate();
+                writing = false;
+                notifyAll();
+            }
+        }
+    }
+
+    // Stima della memoria di un'istantanea: dati e palette di ogni sezione
+    private static long sizeOf(ChunkSection[] sections) {
+        long bytes = 0;
+        for (ChunkSection section : sections) {
+            if (section != null) {
+                bytes += section.getStorage().getDataSizeBytes() + (long) section.getStorage().getPaletteSize() * Integer.BYTES;
+            }
+        }
+        return bytes;
+    }
+
+    private boolean isBatchDue() {
+        if (System.currentTimeMillis() < retryAtMillis) {
+            return false;
+        }
+        if (!checkpointCallbacks.isEmpty()) {
+            return true;
+        }
+        return !pending.isEmpty()
+                && (System.currentTimeMillis() - firstPendingMillis >= saveDelayMillis || budgetWaiters > 0);
+    }
+
+    private void updateRate() {
+        long now = System.nanoTime();
+        long elapsed = now - rateWindowStart;
+        if (elapsed >= 1_000_000_000L) {
+            bytesPerSecond = rateWindowBytes * 1_000_000_000f / elapsed;
+            rateWindowBytes = 0;
+            rateWindowStart = now;
+        }
+    }
+
+    /*
+     * Attende che tutto quanto accodato finora sia scritto, senza aspettare il ritardo di coalescenza.
+     * false se un salvataggio è fallito nel frattempo: quei chunk non sono su disco.
+     */
+    public synchronized boolean flush() {
+        long failedBefore = failedBatches;
+        while (!pending.isEmpty() || writing) {
+            if (failedBatches != failedBefore) {
+                return false;
+            }
+            firstPendingMillis = Long.MIN_VALUE / 2;
+            notifyAll();
+            try {
+                wait(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return failedBatches == failedBefore && store.flush();
+    }
+
+    // false se qualcosa non è arrivato su disco, come flush()
+    public boolean close() {
+        boolean complete = flush();
+        synchronized (this) {
+            running = false;
+            notifyAll();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return complete;
+    }
+
+    public synchronized int getQueueDepth() {
+        return pending.size();
+    }
+
+    public synchronized long getPendingBytes() {
+        return pendingBytes;
+    }
+
+    // Media sull'ultimo secondo chiuso; torna a zero quando non si scrive più
+    public synchronized float getBytesPerSecond() {
+        if (System.nanoTime() - rateWindowStart > 2_000_000_000L) {
+            updateRate();
+        }
+        return bytesPerSecond;
+    }
+
+    public synchronized String summary() {
+        return String.format("%d chunk, %.1f KB scritti, %d scritture accorpate, %d attese per budget",
+                chunksWritten, bytesWritten / 1024f, coalescedWrites, backpressureWaits);
+    }
+
+    // Uno solo tra chunk (istantanea ancora da prendere), sections e data; bytes è la parte nel budget
+    private static class PendingSave {
+        final Chunk chunk;
+        final ChunkSection[] sections;
+        final byte[] data;
+        final long bytes;
+
+        PendingSave(Chunk chunk, ChunkSection[] sections, byte[] data, long bytes) {
+            this.chunk = chunk;
+            this.sections = sections;
+            this.data = data;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package world.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.function.Function;
+
+/*
+ * File di regione: 32x32 chunk. L'header contiene per ogni chunk (int settore di inizio,
+ * int lunghezza in byte); i dati sono allineati a settori da 256 byte, abbastanza piccoli
+ * per i salvataggi delta. Le letture passano da una mappatura in sola lettura.
+ *
+ * Con reuseSectors una riscrittura va nel primo tratto libero abbastanza lungo (bitmap dei settori)
+ * e l'header viene aggiornato solo dopo i dati: un crash a metà lascia valido il record precedente.
+ * I vecchi settori tornano liberi solo dopo un flush(), così l'header che non li usa più è su disco
+ * prima che vengano riscritti, e solo quando nessuna read(x, z, reader) li sta leggendo: le letture
+ * decodificano direttamente la mappatura, senza copie. I settori liberi in fondo vengono tolti alla chiusura.
+ * Senza reuseSectors ogni scrittura va in fondo e read() restituisce una slice della mappatura:
+ * i settori già scritti non cambiano più.
+ */
+public class RegionFile implements AutoCloseable {
+    public static final int SIZE = 32;
+    private static final int CHUNK_COUNT = SIZE * SIZE;
+    private static final int SECTOR_BYTES = 256;
+    private static final int ENTRY_BYTES = 2 * Integer.BYTES;
+    private static final int HEADER_SECTORS = (CHUNK_COUNT * ENTRY_BYTES + SECTOR_BYTES - 1) / SECTOR_BYTES;
+    // Settori sostituiti oltre i quali write() sincronizza da sé per poterli riusare (1 MB)
+    private static final int RETIRED_SECTORS_BEFORE_SYNC = 4096;
+
+    private final FileChannel channel;
+    private final boolean reuseSectors;
+    private final int[] sectorOffsets = new int[CHUNK_COUNT];
+    private final int[] lengths = new int[CHUNK_COUNT];
+    private final BitSet usedSectors = new BitSet();
+    // Copie sostituite: prima attendono il prossimo flush(), poi che non ci siano letture in corso
+    private final BitSet retiredSectors = new BitSet();
+    private final BitSet releasedSectors = new BitSet();
+    private int retiredCount;
+    private int readers;
+    private int sectorCount;
+    private MappedByteBuffer mapping;
+
+    public RegionFile(Path path) throws IOException {
+        this(path, true);
+    }
+
+    // Con reuseSectors false le slice restituite da read() restano valide finché il file è aperto
+    public RegionFile(Path path, boolean reuseSectors) throws IOException {
+        this.reuseSectors = reuseSectors;
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() < (long) HEADER_SECTORS * SECTOR_BYTES) {
+            channel.write(ByteBuffer.allocate(HEADER_SECTORS * SECTOR_BYTES), 0);
+        }
+        sectorCount = (int) ((channel.size() + SECTOR_BYTES - 1) / SECTOR_BYTES);
+
+        ByteBuffer header = ByteBuffer.allocate(CHUNK_COUNT * ENTRY_BYTES).order(ByteOrder.BIG_ENDIAN);
+        channel.read(header, 0);
+        header.flip();
+        usedSectors.set(0, HEADER_SECTORS);
+        for (int i = 0; i < CHUNK_COUNT; i++) {
+            sectorOffsets[i] = header.getInt();
+            lengths[i] = header.getInt();
+            if (lengths[i] > 0) {
+                usedSectors.set(sectorOffsets[i], sectorOffsets[i] + sectorsFor(lengths[i]));
+            }
+        }
+    }
+
+    private static int index(int localX, int localZ) {
+        return localZ * SIZE + localX;
+    }
+
+    public synchronized boolean contains(int localX, int localZ) {
+        return lengths[index(localX, localZ)] > 0;
+    }
+
+    // null se il chunk non è mai stato salvato. Con reuseSectors è una copia, altrimenti una vista della mappatura
+    public synchronized ByteBuffer read(int localX, int localZ) throws IOException {
+        ByteBuffer slice = slice(index(localX, localZ));
+        if (slice == null || !reuseSectors) {
+            return slice;
+        }
+        ByteBuffer copy = ByteBuffer.allocate(slice.remaining());
+        copy.put(slice).flip();
+        return copy;
+    }
+
+    // reader riceve una vista della mappatura (null se il chunk manca): i suoi settori non vengono riusati prima che termini
+    public <T> T read(int localX, int localZ, Function<ByteBuffer, T> reader) throws IOException {
+        ByteBuffer slice;
+        synchronized (this) {
+            slice = slice(index(localX, localZ));
+            readers++;
+        }
+        try {
+            return reader.apply(slice);
+        } finally {
+            synchronized (this) {
+                readers--;
+                releaseSectors();
+            }
+        }
+    }
+
+    private ByteBuffer slice(int i) throws IOException {
+        if (lengths[i] == 0) {
+            return null;
+        }
+        long start = (long) sectorOffsets[i] * SECTOR_BYTES;
+        if (mapping == null || mapping.capacity() < start + lengths[i]) {
+            // Le slice della mappatura precedente restano valide
+            mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        return mapping.slice((int) start, lengths[i]);
+    }
+
+    public synchronized void write(int localX, int localZ, byte[] data) throws IOException {
+        int i = index(localX, localZ);
+        int sectors = sectorsFor(data.length);
+        int oldOffset = sectorOffsets[i];
+        int oldSectors = lengths[i] > 0 ? sectorsFor(lengths[i]) : 0;
+        // Mai sopra il record corrente: i vecchi settori restano occupati finché non vengono rilasciati
+        int offset = reuseSectors ? findFreeSectors(sectors) : sectorCount;
+        usedSectors.set(offset, offset + sectors);
+        sectorCount = Math.max(sectorCount, offset + sectors);
+
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        long position = (long) offset * SECTOR_BYTES;
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        if (channel.size() < (long) sectorCount * SECTOR_BYTES) {
+            channel.write(ByteBuffer.allocate(1), (long) sectorCount * SECTOR_BYTES - 1);
+        }
+
+        // L'header per ultimo
+        sectorOffsets[i] = offset;
+        lengths[i] = data.length;
+        ByteBuffer entry = ByteBuffer.allocate(ENTRY_BYTES).putInt(offset).putInt(data.length).flip();
+        channel.write(entry, (long) i * ENTRY_BYTES);
+
+        if (reuseSectors && oldSectors > 0) {
+            retiredSectors.set(oldOffset, oldOffset + oldSectors);
+            retiredCount += oldSectors;
+            if (retiredCount >= RETIRED_SECTORS_BEFORE_SYNC) {
+                flush();
+            }
+        }
+    }
+
+    private void releaseSectors() {
+        if (readers == 0 && !releasedSectors.isEmpty()) {
+            usedSectors.andNot(releasedSectors);
+            releasedSectors.clear();
+        }
+    }
+
+    // Primo tratto di settori liberi lungo almeno sectors, eventualmente in fondo al file
+    private int findFreeSectors(int sectors) {
+        int start = usedSectors.nextClearBit(HEADER_SECTORS);
+        while (true) {
+            int end = usedSectors.nextSetBit(start);
+            if (end < 0 || end - start >= sectors) {
+                return start;
+            }
+            start = usedSectors.nextClearBit(end);
+        }
+    }
+
+    private static int sectorsFor(int length) {
+        return (length + SECTOR_BYTES - 1) / SECTOR_BYTES;
+    }
+
+    // Settori in uso o liberi fino alla fine del file, header compreso
+    public synchronized long getSizeBytes() {
+        return (long) sectorCount * SECTOR_BYTES;
+    }
+
+    public synchronized void flush() throws IOException {
+        channel.force(false);
+        // L'header su disco non punta più alle copie sostituite
+        releasedSectors.or(retiredSectors);
+        retiredSectors.clear();
+        retiredCount = 0;
+        releaseSectors();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        mapping = null;
+        if (reuseSectors) {
+            flush();
+            usedSectors.andNot(releasedSectors);
+            // Toglie i settori liberi in fondo al file
+            long usedBytes = (long) Math.max(HEADER_SECTORS, usedSectors.length()) * SECTOR_BYTES;
+            try {
+                if (channel.size() > usedBytes) {
+                    channel.truncate(usedBytes);
+                }
+            } catch (IOException e) {
+                // Ad esempio su Windows, finché la vecchia mappatura non è stata rilasciata: il file resta com'è
+                e.printStackTrace();
+            }
+        }
+        channel.close();
+    }
+}
@@ -0,0 +1,186 @@
+package world.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import utils.Logger;
+import world.chunks.Chunk;
+import world.chunks.ChunkLoadScheduler;
+import world.chunks.ChunkSection;
+
+/*
+ * Salvataggio dei chunk su disco, un RegionFile (r.<x>.<z>.region) ogni 32x32 chunk.
+ * I file vengono aperti al primo uso e restano aperti fino a close(); le regioni
+ * senza file vengono ricordate per non interrogare il disco a ogni caricamento.
+ * In modalità DELTA si scrivono solo le differenze dal terreno generato (ChunkDelta);
+ * la lettura riconosce il formato dal primo byte, quindi i due modi convivono nello stesso file.
+ */
+public class RegionStore implements ChunkLoadScheduler.ChunkSource, AutoCloseable {
+    public enum StorageMode {
+        FULL, DELTA
+    }
+
+    // Sotto questa dimensione un delta è sicuramente più piccolo del chunk completo (un settore)
+    private static final int DELTA_FULL_CHECK_BYTES = 256;
+
+    private final Path directory;
+    private final Map<Long, RegionFile> regions = new HashMap<>();
+    private final Set<Long> missingRegions = new HashSet<>();
+    private volatile StorageMode storageMode;
+
+    public RegionStore(Path directory) {
+        this(directory, StorageMode.FULL);
+    }
+
+    public RegionStore(Path directory, StorageMode storageMode) {
+        this.directory = directory;
+        this.storageMode = storageMode;
+    }
+
+    public void setStorageMode(StorageMode storageMode) {
+        this.storageMode = storageMode;
+    }
+
+    @Override
+    public boolean load(Chunk chunk) {
+        try {
+            RegionFile region = getRegion(chunk.getChunkX(), chunk.getChunkZ(), false);
+            if (region == null) {
+                return false;
+            }
+            ChunkSection[] sections = region.read(localCoordinate(chunk.getChunkX()), localCoordinate(chunk.getChunkZ()),
+                    data -> data == null ? null : decode(chunk, data));
+            if (sections == null) {
+                return false;
+            }
+            return chunk.restore(sections);
+        } catch (IOException | RuntimeException e) {
+            // Record corrotto o illeggibile: il chunk viene rigenerato
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    // Decodifica direttamente dalla mappatura del file; null se il record non è utilizzabile
+    private static ChunkSection[] decode(Chunk chunk, ByteBuffer data) {
+        boolean delta = (data.get(data.position()) & 0xFF) == ChunkDelta.FORMAT;
+        boolean matches = delta
+                ? ChunkDelta.isAt(data, chunk.getChunkX(), chunk.getChunkZ())
+                : ChunkCodec.isAt(data, chunk.getChunkX(), chunk.getChunkZ());
+        if (!matches) {
+            Logger.info("Il record del chunk " + chunk.getChunkX() + "," + chunk.getChunkZ()
+                    + " contiene un altro chunk: ignorato");
+            return null;
+        }
+        ChunkSection[] sections = delta ? ChunkDelta.decode(data) : ChunkCodec.decode(data);
+        if (sections == null) {
+            Logger.info("Delta del chunk " + chunk.getChunkX() + "," + chunk.getChunkZ()
+                    + " scritto da un'altra versione del generatore o con un altro seme: ignorato");
+        }
+        return sections;
+    }
+
+    // Restituiscono i byte scritti, -1 in caso di errore
+    public int save(Chunk chunk) {
+        return save(chunk.getChunkX(), chunk.getChunkZ(), chunk.getSections());
+    }
+
+    public int save(int chunkX, int chunkZ, ChunkSection[] sections) {
+        if (storageMode != StorageMode.DELTA) {
+            return write(chunkX, chunkZ, ChunkCodec.encode(chunkX, chunkZ, sections));
+        }
+        byte[] data = ChunkDelta.encode(chunkX, chunkZ, sections);
+        if (data.length > DELTA_FULL_CHECK_BYTES) {
+            // Tante modifiche: se il chunk completo è più piccolo si scrive quello, che si carica anche senza rigenerare
+            byte[] full = ChunkCodec.encode(chunkX, chunkZ, sections);
+            if (full.length <= data.length) {
+                data = full;
+            }
+        }
+        return write(chunkX, chunkZ, data);
+    }
+
+    // encoded è l'output di ChunkCodec.encode (ad esempio i byte già pronti per la cache)
+    public int save(int chunkX, int chunkZ, byte[] encoded) {
+        if (storageMode == StorageMode.DELTA) {
+            return save(chunkX, chunkZ, ChunkCodec.decode(ByteBuffer.wrap(encoded)));
+        }
+        return write(chunkX, chunkZ, encoded);
+    }
+
+    private int write(int chunkX, int chunkZ, byte[] data) {
+        try {
+            RegionFile region = getRegion(chunkX, chunkZ, true);
+            region.write(localCoordinate(chunkX), localCoordinate(chunkZ), data);
+            return data.length;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    private synchronized RegionFile getRegion(int chunkX, int chunkZ, boolean create) throws IOException {
+        int regionX = Math.floorDiv(chunkX, RegionFile.SIZE);
+        int regionZ = Math.floorDiv(chunkZ, RegionFile.SIZE);
+        long key = ((long) regionX << 32) | (regionZ & 0xFFFFFFFFL);
+
+        RegionFile region = regions.get(key);
+        if (region != null) {
+            return region;
+        }
+        if (!create && missingRegions.contains(key)) {
+            return null;
+        }
+        Path path = directory.resolve("r." + regionX + "." + regionZ + ".region");
+        if (!create && !Files.exists(path)) {
+            missingRegions.add(key);
+            return null;
+        }
+        Files.createDirectories(directory);
+        region = new RegionFile(path);
+        regions.put(key, region);
+        missingRegions.remove(key);
+        return region;
+    }
+
+    private static int localCoordinate(int chunkCoordinate) {
+        return Math.floorMod(chunkCoordinate, RegionFile.SIZE);
+    }
+
+    public synchronized int getOpenRegionCount() {
+        return regions.size();
+    }
+
+    // false se almeno una regione non è stata sincronizzata
+    public synchronized boolean flush() {
+        boolean complete = true;
+        for (RegionFile region : regions.values()) {
+            try {
+                region.flush();
+            } catch (IOException e) {
+                e.printStackTrace();
+                complete = false;
+            }
+        }
+        return complete;
+    }
+
+    @Override
+    public synchronized void close() {
+        flush();
+        for (RegionFile region : regions.values()) {
+            try {
+                region.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        regions.clear();
+    }
+}
@@ -1,11 +1,13 @@
 #version 330
 
 in vec2 outTextCoord;
+flat in vec2 outTileOrigin;
 in vec3 vertexPos; 
 
 out vec4 fragColor;
 
 uniform sampler2D txtSampler;
+uniform vec2 tileSize;
 uniform vec3 fogColor;
 uniform vec3 cameraPosition;
 uniform float fogDensity;
@@ -13,7 +15,7 @@ uniform float fogGradient;
 
 void main()
 {
-    vec4 textureColor = texture(txtSampler, outTextCoord);
+    vec4 textureColor = texture(txtSampler, outTileOrigin + fract(outTextCoord) * tileSize);
     
     if(textureColor.a < 0.1) {
         discard;
@@ -1,19 +1,46 @@
 #version 330
 
-layout (location=0) in vec3 position;
-layout (location=1) in vec2 texCoord;
+layout (location=0) in uint packedVertex;
 
 out vec2 outTextCoord;
+flat out vec2 outTileOrigin;
 out vec3 vertexPos;
 
 uniform mat4 projectionMatrix;
 uniform mat4 viewMatrix;
 uniform mat4 modelMatrix;
+uniform vec2 tileSize;
+
+// Decodifica il vertice impacchettato da ChunkMesh.packVertex
+vec3 unpackPosition()
+{
+    return vec3(float(packedVertex & 31u), float((packedVertex >> 5) & 511u), float((packedVertex >> 14) & 31u));
+}
+
+// Coordinate in unità di tile: solo la parte frazionaria conta, il fragment shader ripete il tile
+vec2 faceTexCoord(vec3 position, uint face)
+{
+    if (face <= 1u) {
+        return vec2(position.x, -position.z);
+    }
+    if (face <= 3u) {
+        return vec2(position.x, -position.y);
+    }
+    if (face == 4u) {
+        return vec2(-position.z, -position.y);
+    }
+    return vec2(position.z, -position.y);
+}
 
 void main()
 {
+    vec3 position = unpackPosition();
+    uint face = (packedVertex >> 19) & 7u;
+    vec2 tile = vec2(float((packedVertex >> 22) & 31u), float(packedVertex >> 27));
+
     vec4 worldPos = modelMatrix * vec4(position, 1.0);
     vertexPos = worldPos.xyz;
     gl_Position = projectionMatrix * viewMatrix * worldPos;
-    outTextCoord = texCoord;
+    outTextCoord = faceTexCoord(position, face);
+    outTileOrigin = tile * tileSize;
 }
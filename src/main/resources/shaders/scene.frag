@@ -1,12 +1,14 @@
 #version 330
 
 in vec2 outTextCoord;
+flat in vec2 outTileOrigin;
 
 out vec4 fragColor;
 
 uniform sampler2D txtSampler;
+uniform vec2 tileSize;
 
 void main()
 {
-    fragColor = texture(txtSampler, outTextCoord);
+    fragColor = texture(txtSampler, outTileOrigin + fract(outTextCoord) * tileSize);
 }
\ No newline at end of file
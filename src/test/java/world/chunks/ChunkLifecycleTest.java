@@ -0,0 +1,279 @@
+package world.chunks;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import rendering.meshes.MeshData;
+import scene.Scene;
+import world.World;
+import world.generation.GenerationPipeline;
+
+/*
+ * Scaricamento in gara con generazione, meshing e upload, con lo stesso protocollo di Scene
+ * ma senza GL. Un thread osserva gli stati di continuo: ogni coppia di stati visti in sequenza
+ * deve essere raggiungibile nel grafo di ChunkState, e ogni MeshData prodotto va liberato.
+ */
+class ChunkLifecycleTest {
+    private static final int CHUNKS = 200;
+
+    private final Queue<String> violations = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean watching = new AtomicBoolean(true);
+    private Thread watcher;
+
+    @BeforeAll
+    static void setUpTextures() throws ReflectiveOperationException {
+        // Senza atlante: a ChunkMesh basta una posizione qualsiasi per ogni texture
+        Field field = Scene.class.getDeclaredField("textureTiles");
+        field.setAccessible(true);
+        int[][] tiles = (int[][]) field.get(null);
+        for (int i = 0; i < tiles.length; i++) {
+            tiles[i] = new int[] { i, 0 };
+        }
+    }
+
+    @AfterEach
+    void stopWatcher() throws InterruptedException {
+        watching.set(false);
+        if (watcher != null) {
+            watcher.join();
+        }
+    }
+
+    @Test
+    void unloadDuringGenerationIsTerminal() throws Exception {
+        List<Chunk> chunks = new ArrayList<>();
+        for (int i = 0; i < CHUNKS; i++) {
+            chunks.add(new Chunk(i % 20, i / 20));
+        }
+        watch(chunks);
+
+        GenerationPipeline pipeline = new GenerationPipeline(2);
+        try {
+            List<CompletableFuture<Chunk>> generated = new ArrayList<>();
+            Random random = new Random(42);
+            for (Chunk chunk : chunks) {
+                generated.add(pipeline.generate(chunk));
+                // Annullamento come ChunkLoadScheduler: prima, durante o dopo la generazione
+                if (random.nextBoolean()) {
+                    spin(random.nextInt(200_000));
+                    chunk.markUnloading();
+                }
+            }
+            for (int i = 0; i < CHUNKS; i++) {
+                Chunk result = generated.get(i).get(30, TimeUnit.SECONDS);
+                Chunk chunk = chunks.get(i);
+                if (result == null) {
+                    assertEquals(ChunkState.UNLOADING, chunk.getState());
+                } else {
+                    assertTrue(chunk.getState() == ChunkState.GENERATED || chunk.getState() == ChunkState.UNLOADING);
+                }
+                chunk.markUnloading();
+                assertEquals(ChunkState.UNLOADING, chunk.getState());
+            }
+        } finally {
+            pipeline.shutdown();
+        }
+        assertNoViolations();
+    }
+
+    @Test
+    void unloadDuringMeshingAndUploadLeaksNothing() throws Exception {
+        World world = new World();
+        List<Chunk> chunks = new ArrayList<>();
+        for (int i = 0; i < CHUNKS; i++) {
+            Chunk chunk = new Chunk(i % 20, i / 20);
+            assertTrue(chunk.generate());
+            world.addChunk(chunk);
+            chunks.add(chunk);
+        }
+        watch(chunks);
+
+        ExecutorService meshExecutor = Executors.newFixedThreadPool(3);
+        Queue<Upload> uploads = new ConcurrentLinkedQueue<>();
+        AtomicInteger created = new AtomicInteger();
+        AtomicInteger freed = new AtomicInteger();
+        AtomicInteger inFlight = new AtomicInteger();
+        Random random = new Random(7);
+        try {
+            for (int round = 0; round < 2000; round++) {
+                Chunk chunk = chunks.get(random.nextInt(CHUNKS));
+                ChunkState previous = chunk.getState();
+                if ((previous == ChunkState.GENERATED || previous == ChunkState.READY)
+                        && move(chunk, previous, ChunkState.MESHING)) {
+                    chunk.markSectionsDirty(Chunk.ALL_SECTIONS);
+                    int sectionMask = chunk.takeDirtySections();
+                    ChunkSnapshot snapshot = ChunkSnapshot.capture(chunk, world, sectionMask);
+                    inFlight.incrementAndGet();
+                    meshExecutor.submit(() -> {
+                        try {
+                            MeshData[] data = ChunkMesh.buildMeshData(snapshot, ChunkMesh.MeshingMode.GREEDY, sectionMask);
+                            created.addAndGet(count(data));
+                            if (move(chunk, ChunkState.MESHING, ChunkState.UPLOADING)) {
+                                uploads.add(new Upload(chunk, data));
+                            } else {
+                                freed.addAndGet(free(data));
+                            }
+                        } finally {
+                            snapshot.release();
+                            inFlight.decrementAndGet();
+                        }
+                    });
+                }
+                if (random.nextInt(8) == 0) {
+                    Chunk unloaded = world.removeChunk(new ChunkPosition(chunk.getChunkX(), chunk.getChunkZ()));
+                    if (unloaded != null) {
+                        unloaded.releaseResources();
+                    }
+                }
+                drainUploads(uploads, freed);
+            }
+            meshExecutor.shutdown();
+            while (!meshExecutor.awaitTermination(10, TimeUnit.MILLISECONDS)) {
+                drainUploads(uploads, freed);
+            }
+            drainUploads(uploads, freed);
+        } finally {
+            meshExecutor.shutdownNow();
+        }
+
+        assertEquals(0, inFlight.get());
+        assertTrue(created.get() > 0);
+        assertEquals(created.get(), freed.get(), "MeshData non liberati");
+        for (Chunk chunk : chunks) {
+            ChunkState state = chunk.getState();
+            assertTrue(state == ChunkState.UNLOADING || state == ChunkState.GENERATED || state == ChunkState.READY,
+                    "chunk fermo in " + state);
+        }
+        assertNoViolations();
+    }
+
+    // Come l'upload di Scene sul thread di rendering: i chunk scaricati nel frattempo liberano i dati
+    private void drainUploads(Queue<Upload> uploads, AtomicInteger freed) {
+        Upload upload;
+        while ((upload = uploads.poll()) != null) {
+            freed.addAndGet(free(upload.data));
+            if (!upload.chunk.isReleased()) {
+                move(upload.chunk, ChunkState.UPLOADING, ChunkState.READY);
+            }
+        }
+    }
+
+    private boolean move(Chunk chunk, ChunkState from, ChunkState to) {
+        if (!isEdge(from, to)) {
+            violations.add("transizione illegale " + from + " -> " + to);
+        }
+        return chunk.transition(from, to);
+    }
+
+    private void watch(List<Chunk> chunks) {
+        watcher = new Thread(() -> {
+            ChunkState[] last = new ChunkState[chunks.size()];
+            while (watching.get()) {
+                for (int i = 0; i < last.length; i++) {
+                    ChunkState state = chunks.get(i).getState();
+                    if (last[i] != null && last[i] != state && !isReachable(last[i], state)) {
+                        violations.add(chunks.get(i).getChunkX() + "," + chunks.get(i).getChunkZ() + ": "
+                                + last[i] + " poi " + state);
+                    }
+                    last[i] = state;
+                }
+            }
+        }, "lifecycle-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private void assertNoViolations() {
+        assertTrue(violations.isEmpty(), () -> String.join("\n", violations));
+    }
+
+    // Gli archi di ChunkState, più il ritorno a GENERATED/READY di un meshing senza sezioni sporche
+    private static boolean isEdge(ChunkState from, ChunkState to) {
+        if (to == ChunkState.UNLOADING) {
+            return from != ChunkState.UNLOADING;
+        }
+        switch (from) {
+            case QUEUED:
+                return to == ChunkState.GENERATING;
+            case GENERATING:
+                return to == ChunkState.GENERATED;
+            case GENERATED:
+            case READY:
+                return to == ChunkState.MESHING;
+            case MESHING:
+                return to == ChunkState.UPLOADING || to == ChunkState.GENERATED || to == ChunkState.READY;
+            case UPLOADING:
+                return to == ChunkState.READY;
+            default:
+                return false;
+        }
+    }
+
+    // Stati che possono seguire from dopo un numero qualsiasi di transizioni
+    private static boolean isReachable(ChunkState from, ChunkState to) {
+        switch (from) {
+            case QUEUED:
+                return true;
+            case GENERATING:
+                return to != ChunkState.QUEUED;
+            case UNLOADING:
+                return false;
+            default:
+                return to != ChunkState.QUEUED && to != ChunkState.GENERATING;
+        }
+    }
+
+    private static int count(MeshData[] data) {
+        int count = 0;
+        for (MeshData mesh : data) {
+            if (mesh != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int free(MeshData[] data) {
+        int count = 0;
+        for (MeshData mesh : data) {
+            if (mesh != null) {
+                mesh.free();
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void spin(int iterations) {
+        for (int i = 0; i < iterations; i++) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private static class Upload {
+        final Chunk chunk;
+        final MeshData[] data;
+
+        Upload(Chunk chunk, MeshData[] data) {
+            this.chunk = chunk;
+            this.data = data;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package world.chunks;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/*
+ * Memoria dei chunk generati su 441 chunk (21x21, distanza di rendering più il bordo):
+ * le sezioni uniformi non hanno dati, le altre usano i bit strettamente necessari alla
+ * palette e i dati bit-packed restano lontani dai 256 KB di riferimenti di un Block[16][256][16].
+ */
+class ChunkMemoryTest {
+    private static final int SIDE = 21;
+    private static final long MAX_PACKED_BYTES_PER_CHUNK = 8 * 1024;
+
+    @Test
+    void generatedChunksAreCompact() {
+        long packedBytes = 0;
+        int sections = 0;
+        int uniform = 0;
+        for (int i = 0; i < SIDE * SIDE; i++) {
+            Chunk chunk = new Chunk(i % SIDE, i / SIDE);
+            assertTrue(chunk.generate());
+            for (ChunkSection section : chunk.getSections()) {
+                if (section == null) {
+                    continue;
+                }
+                sections++;
+                PaletteStorage storage = section.getStorage();
+                packedBytes += storage.getDataSizeBytes();
+                if (section.isUniform()) {
+                    uniform++;
+                    assertEquals(0, storage.getDataSizeBytes(), "sezione uniforme con dati");
+                } else {
+                    int neededBits = 32 - Integer.numberOfLeadingZeros(storage.getPaletteSize() - 1);
+                    assertEquals(neededBits, storage.getBitsPerEntry(), "palette di " + storage.getPaletteSize() + " voci");
+                }
+            }
+        }
+        assertTrue(uniform > 0 && uniform < sections);
+        long perChunk = packedBytes / (SIDE * SIDE);
+        assertTrue(perChunk <= MAX_PACKED_BYTES_PER_CHUNK, perChunk + " byte bit-packed per chunk");
+    }
+}
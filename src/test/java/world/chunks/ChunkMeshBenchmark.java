@@ -0,0 +1,73 @@
+package world.chunks;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import rendering.meshes.MeshData;
+import scene.Scene;
+import world.World;
+
+/*
+ * Remesh completo del chunk centrale di una griglia 5x5, senza GL: cattura dello snapshot e
+ * buildMeshData, per entrambe le modalità. Con -prof gc, gc.alloc.rate.norm sono i byte di heap
+ * allocati per remesh; i buffer di MeshData sono off-heap e non vi compaiono.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChunkMeshBenchmark {
+    @Param({ "NAIVE", "GREEDY" })
+    public ChunkMesh.MeshingMode mode;
+
+    private World world;
+    private Chunk center;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        Field field = Scene.class.getDeclaredField("textureTiles");
+        field.setAccessible(true);
+        int[][] tiles = (int[][]) field.get(null);
+        for (int i = 0; i < tiles.length; i++) {
+            tiles[i] = new int[] { i, 0 };
+        }
+
+        world = new World();
+        for (int x = -2; x <= 2; x++) {
+            for (int z = -2; z <= 2; z++) {
+                Chunk chunk = new Chunk(x, z);
+                chunk.generate();
+                world.addChunk(chunk);
+            }
+        }
+        center = world.getChunk(0, 0);
+    }
+
+    @Benchmark
+    public void remesh(Blackhole blackhole) {
+        ChunkSnapshot snapshot = ChunkSnapshot.capture(center, world, Chunk.ALL_SECTIONS);
+        MeshData[] meshes = ChunkMesh.buildMeshData(snapshot, mode, Chunk.ALL_SECTIONS);
+        snapshot.release();
+        for (MeshData mesh : meshes) {
+            if (mesh != null) {
+                blackhole.consume(mesh.getVertices().remaining());
+                mesh.free();
+            }
+        }
+    }
+}
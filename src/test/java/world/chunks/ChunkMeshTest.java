@@ -0,0 +1,224 @@
+package world.chunks;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Field;
+import java.nio.IntBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import rendering.meshes.MeshData;
+import scene.Scene;
+import world.World;
+import world.blocks.Block;
+import world.blocks.Block.BlockType;
+import world.blocks.BlockRegistry;
+
+/*
+ * Il greedy meshing deve coprire esattamente le stesse facce unitarie del naive, con la
+ * stessa texture, senza sovrapposizioni. Ogni quad viene scomposto nelle sue facce 1x1.
+ */
+class ChunkMeshTest {
+    private static final int STONE = BlockRegistry.getId(BlockType.STONE);
+    private static final int DIRT = BlockRegistry.getId(BlockType.DIRT);
+    private static final int GRASS = BlockRegistry.getId(BlockType.GRASS);
+    private static final int WOOD = BlockRegistry.getId(BlockType.WOOD);
+    private static final int LEAVES = BlockRegistry.getId(BlockType.LEAVES);
+    private static final int WATER = BlockRegistry.getId(BlockType.WATER);
+    private static final int[] PALETTE = { BlockRegistry.AIR_ID, STONE, DIRT, GRASS, WOOD, LEAVES, WATER };
+    private static final Block.Face[] FACES = Block.Face.values();
+
+    @BeforeAll
+    static void setUpTextures() throws ReflectiveOperationException {
+        // Un tile diverso per ogni texture: una fusione tra texture diverse si vede nel confronto
+        Field field = Scene.class.getDeclaredField("textureTiles");
+        field.setAccessible(true);
+        int[][] tiles = (int[][]) field.get(null);
+        for (int i = 0; i < tiles.length; i++) {
+            tiles[i] = new int[] { i % 32, i / 32 };
+        }
+    }
+
+    @Test
+    void emptyChunkHasNoFaces() {
+        World world = new World();
+        Chunk chunk = addChunk(world, 0, 0);
+        assertTrue(compare(world, chunk).isEmpty());
+    }
+
+    @Test
+    void fullChunk() {
+        World world = new World();
+        Chunk chunk = addChunk(world, 0, 0);
+        fill(chunk, 0, Chunk.HEIGHT, STONE);
+        assertEquals(2 * Chunk.WIDTH * Chunk.DEPTH + 4 * Chunk.WIDTH * Chunk.HEIGHT, compare(world, chunk).size());
+    }
+
+    @Test
+    void fullChunkBetweenFullNeighbors() {
+        World world = new World();
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dz = -1; dz <= 1; dz++) {
+                fill(addChunk(world, dx, dz), 0, 40, DIRT);
+            }
+        }
+        assertEquals(2 * Chunk.WIDTH * Chunk.DEPTH, compare(world, world.getChunk(0, 0)).size());
+    }
+
+    @Test
+    void checkerboard() {
+        World world = new World();
+        Chunk chunk = addChunk(world, 0, 0);
+        for (int y = 0; y < 40; y++) {
+            for (int z = 0; z < Chunk.DEPTH; z++) {
+                for (int x = 0; x < Chunk.WIDTH; x++) {
+                    if (((x + y + z) & 1) == 0) {
+                        chunk.setBlockId(x, y, z, (y & 2) == 0 ? STONE : GRASS);
+                    }
+                }
+            }
+        }
+        compare(world, chunk);
+    }
+
+    @Test
+    void fluidNextToSolid() {
+        World world = new World();
+        Chunk chunk = addChunk(world, 0, 0);
+        fill(chunk, 0, 30, STONE);
+        for (int y = 30; y < 50; y++) {
+            for (int z = 0; z < Chunk.DEPTH; z++) {
+                for (int x = 0; x < Chunk.WIDTH; x++) {
+                    // Lago a metà chunk, accanto a una parete di pietra e a qualche foglia
+                    int blockId = x < 8 ? WATER : x < 12 ? STONE : (z % 3 == 0 ? LEAVES : BlockRegistry.AIR_ID);
+                    chunk.setBlockId(x, y, z, blockId);
+                }
+            }
+        }
+        Chunk neighbor = addChunk(world, -1, 0);
+        fill(neighbor, 0, 45, WATER);
+        compare(world, chunk);
+    }
+
+    @Test
+    void randomChunks() {
+        for (long seed = 1; seed <= 8; seed++) {
+            Random random = new Random(seed);
+            World world = new World();
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dz = -1; dz <= 1; dz++) {
+                    Chunk chunk = addChunk(world, dx, dz);
+                    // Poche id in blocchi grandi oppure rumore puro, secondo il seme
+                    int density = 1 + random.nextInt(4);
+                    int height = 1 + random.nextInt(48);
+                    for (int y = 0; y < height; y++) {
+                        for (int z = 0; z < Chunk.DEPTH; z++) {
+                            for (int x = 0; x < Chunk.WIDTH; x++) {
+                                int blockId = random.nextInt(density + 1) == 0
+                                        ? PALETTE[random.nextInt(PALETTE.length)]
+                                        : y < height / 2 ? STONE : DIRT;
+                                chunk.setBlockId(x, y, z, blockId);
+                            }
+                        }
+                    }
+                }
+            }
+            compare(world, world.getChunk(0, 0));
+        }
+    }
+
+    @Test
+    void generatedTerrain() {
+        World world = new World();
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dz = -1; dz <= 1; dz++) {
+                Chunk chunk = new Chunk(dx, dz);
+                assertTrue(chunk.generate());
+                world.addChunk(chunk);
+            }
+        }
+        assertTrue(compare(world, world.getChunk(0, 0)).size() > 0);
+    }
+
+    private static Chunk addChunk(World world, int chunkX, int chunkZ) {
+        Chunk chunk = new Chunk(chunkX, chunkZ);
+        world.addChunk(chunk);
+        return chunk;
+    }
+
+    private static void fill(Chunk chunk, int fromY, int toY, int blockId) {
+        for (int y = fromY; y < toY; y++) {
+            for (int z = 0; z < Chunk.DEPTH; z++) {
+                for (int x = 0; x < Chunk.WIDTH; x++) {
+                    chunk.setBlockId(x, y, z, blockId);
+                }
+            }
+        }
+    }
+
+    // Restituisce le facce coperte, uguali nelle due modalità
+    private static Map<String, Integer> compare(World world, Chunk chunk) {
+        Map<String, Integer> naive = cover(world, chunk, ChunkMesh.MeshingMode.NAIVE);
+        Map<String, Integer> greedy = cover(world, chunk, ChunkMesh.MeshingMode.GREEDY);
+        assertEquals(naive.size(), greedy.size(), "numero di facce");
+        assertEquals(naive, greedy);
+        return naive;
+    }
+
+    private static Map<String, Integer> cover(World world, Chunk chunk, ChunkMesh.MeshingMode mode) {
+        Map<String, Integer> faces = new HashMap<>();
+        ChunkSnapshot snapshot = ChunkSnapshot.capture(chunk, world, Chunk.ALL_SECTIONS);
+        try {
+            MeshData[] meshes = ChunkMesh.buildMeshData(snapshot, mode, Chunk.ALL_SECTIONS);
+            for (MeshData mesh : meshes) {
+                if (mesh != null) {
+                    addFaces(mesh.getVertices(), faces);
+                    mesh.free();
+                }
+            }
+        } finally {
+            snapshot.release();
+        }
+        return faces;
+    }
+
+    // Vertici nel formato di ChunkMesh.packVertex, quattro per quad
+    private static void addFaces(IntBuffer vertices, Map<String, Integer> faces) {
+        while (vertices.remaining() >= 4) {
+            int[] min = { Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE };
+            int[] max = { Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE };
+            int first = vertices.get(vertices.position());
+            for (int v = 0; v < 4; v++) {
+                int packed = vertices.get();
+                int[] position = { packed & 31, (packed >>> 5) & 511, (packed >>> 14) & 31 };
+                for (int axis = 0; axis < 3; axis++) {
+                    min[axis] = Math.min(min[axis], position[axis]);
+                    max[axis] = Math.max(max[axis], position[axis]);
+                }
+                assertEquals(first >>> 19, packed >>> 19, "faccia e tile uguali sui quattro vertici");
+            }
+            Block.Face face = FACES[(first >>> 19) & 7];
+            int tile = first >>> 22;
+            int normal = face.getOffsetX() != 0 ? 0 : face.getOffsetY() != 0 ? 1 : 2;
+            assertEquals(min[normal], max[normal], "quad non piano");
+            int a = (normal + 1) % 3;
+            int b = (normal + 2) % 3;
+            for (int i = min[a]; i < max[a]; i++) {
+                for (int j = min[b]; j < max[b]; j++) {
+                    int[] cell = new int[3];
+                    cell[normal] = min[normal];
+                    cell[a] = i;
+                    cell[b] = j;
+                    String key = face + " " + cell[0] + "," + cell[1] + "," + cell[2];
+                    assertNull(faces.put(key, tile), "faccia coperta due volte: " + key);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package world.generation;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import world.chunks.Chunk;
+
+/*
+ * Colonne al secondo dell'altezza del terreno, con i parametri di WorldGenerator (4 ottave):
+ * fill() su una griglia 16x16, fractal() colonna per colonna e computeHeights() completo.
+ * Ogni invocazione è un chunk, cioè 256 operazioni.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimplexNoiseBenchmark {
+    private static final int COLUMNS = Chunk.WIDTH * Chunk.DEPTH;
+
+    private final SimplexNoise noise = new SimplexNoise(0x5EEDL);
+    private final double[] heights = new double[COLUMNS];
+    private final int[] terrainHeights = new int[COLUMNS];
+    private WorldGenerator generator;
+    private int chunkX;
+
+    @Setup
+    public void setUp() {
+        generator = WorldGenerator.forCurrentThread();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COLUMNS)
+    public double[] fill() {
+        chunkX++;
+        noise.fill(chunkX * Chunk.WIDTH, 0, Chunk.WIDTH, Chunk.DEPTH, heights, 4, 0.008, 2.0, 0.5);
+        return heights;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COLUMNS)
+    public void fractal(Blackhole blackhole) {
+        chunkX++;
+        for (int z = 0; z < Chunk.DEPTH; z++) {
+            for (int x = 0; x < Chunk.WIDTH; x++) {
+                blackhole.consume(noise.fractal(chunkX * Chunk.WIDTH + x, z, 4, 0.008, 2.0, 0.5));
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COLUMNS)
+    public int[] computeHeights() {
+        chunkX++;
+        return generator.computeHeights(chunkX, 0, terrainHeights);
+    }
+}
@@ -0,0 +1,56 @@
+package world.generation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/*
+ * fill() deve dare gli stessi valori di fractal() bit per bit, in [-1, 1],
+ * e lo stesso seme gli stessi valori anche con istanze diverse.
+ */
+class SimplexNoiseTest {
+    private static final int SIZE = 16;
+
+    @Test
+    void fillMatchesFractal() {
+        SimplexNoise noise = new SimplexNoise(0x5EEDL);
+        double[] out = new double[SIZE * SIZE];
+        for (int chunkX = -10; chunkX < 10; chunkX++) {
+            for (int chunkZ = -10; chunkZ < 10; chunkZ++) {
+                noise.fill(chunkX * SIZE, chunkZ * SIZE, SIZE, SIZE, out, 4, 0.008, 2.0, 0.5);
+                for (int z = 0; z < SIZE; z++) {
+                    for (int x = 0; x < SIZE; x++) {
+                        double expected = noise.fractal(chunkX * SIZE + x, chunkZ * SIZE + z, 4, 0.008, 2.0, 0.5);
+                        assertEquals(Double.doubleToLongBits(expected), Double.doubleToLongBits(out[z * SIZE + x]));
+                        assertTrue(expected >= -1 && expected <= 1);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void seedDeterminesValues() {
+        double[] first = grid(new SimplexNoise(42));
+        double[] second = grid(new SimplexNoise(42));
+        double[] other = grid(new SimplexNoise(43));
+        for (int i = 0; i < first.length; i++) {
+            assertEquals(Double.doubleToLongBits(first[i]), Double.doubleToLongBits(second[i]));
+        }
+        int different = 0;
+        for (int i = 0; i < first.length; i++) {
+            if (first[i] != other[i]) {
+                different++;
+            }
+        }
+        assertNotEquals(0, different);
+    }
+
+    private static double[] grid(SimplexNoise noise) {
+        double[] out = new double[SIZE * SIZE];
+        noise.fill(-123 * SIZE, 456 * SIZE, SIZE, SIZE, out, 4, 0.008, 2.0, 0.5);
+        return out;
+    }
+}
@@ -0,0 +1,45 @@
+package world.generation;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import world.chunks.Chunk;
+
+/*
+ * Costo di FeatureBuffer in Chunk.generate(): con il buffer caldo i piani degli alberi dei vicini
+ * sono già pronti, con il buffer svuotato prima di ogni chunk vanno ricalcolati tutti e nove.
+ * I chunk avanzano lungo una striscia, come durante l'esplorazione.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TreeFeatureBenchmark {
+    @Param({ "false", "true" })
+    public boolean clearBuffer;
+
+    private int next;
+
+    @Benchmark
+    public Chunk generate() {
+        if (clearBuffer) {
+            WorldGenerator.getFeatureBuffer().clear();
+        }
+        next++;
+        Chunk chunk = new Chunk(next / 25, next % 25);
+        chunk.generate();
+        return chunk;
+    }
+}
@@ -0,0 +1,105 @@
+package world.generation;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import world.blocks.Block;
+import world.blocks.BlockRegistry;
+import world.chunks.Chunk;
+import world.chunks.ChunkPosition;
+import world.storage.ChunkCodec;
+
+/*
+ * Alberi che attraversano i bordi dei chunk: una griglia 20x20 generata in ordine, in ordine
+ * casuale svuotando FeatureBuffer prima di ogni chunk e in ordine casuale con la pipeline deve
+ * dare chunk identici byte per byte, e sui bordi devono comparire foglie e tronchi.
+ */
+class TreeFeatureTest {
+    @Test
+    void treesDoNotDependOnGenerationOrder() {
+        List<ChunkPosition> order = new ArrayList<>();
+        for (int x = -10; x < 10; x++) {
+            for (int z = -10; z < 10; z++) {
+                order.add(new ChunkPosition(x, z));
+            }
+        }
+        Map<ChunkPosition, byte[]> inOrder = generateAll(order, false, null);
+
+        List<ChunkPosition> shuffled = new ArrayList<>(order);
+        Collections.shuffle(shuffled, new Random(7));
+        Map<ChunkPosition, byte[]> clearedBuffer = generateAll(shuffled, true, null);
+
+        Collections.shuffle(shuffled, new Random(9));
+        GenerationPipeline pipeline = new GenerationPipeline(2);
+        Map<ChunkPosition, byte[]> throughPipeline;
+        try {
+            throughPipeline = generateAll(shuffled, false, pipeline);
+        } finally {
+            pipeline.shutdown();
+        }
+
+        for (ChunkPosition position : order) {
+            assertArrayEquals(inOrder.get(position), clearedBuffer.get(position), "buffer svuotato, chunk " + position.getX() + "," + position.getZ());
+            assertArrayEquals(inOrder.get(position), throughPipeline.get(position), "pipeline, chunk " + position.getX() + "," + position.getZ());
+        }
+    }
+
+    @Test
+    void treesReachChunkBorders() {
+        int leaves = BlockRegistry.getId(Block.BlockType.LEAVES);
+        int wood = BlockRegistry.getId(Block.BlockType.WOOD);
+        int edgeLeaves = 0;
+        int edgeTrunks = 0;
+        for (int chunkX = -5; chunkX < 5; chunkX++) {
+            for (int chunkZ = -5; chunkZ < 5; chunkZ++) {
+                Chunk chunk = new Chunk(chunkX, chunkZ);
+                assertTrue(chunk.generate());
+                for (int x = 0; x < Chunk.WIDTH; x++) {
+                    for (int z = 0; z < Chunk.DEPTH; z++) {
+                        boolean edge = x == 0 || x == Chunk.WIDTH - 1 || z == 0 || z == Chunk.DEPTH - 1;
+                        boolean nearEdge = x < 3 || x >= Chunk.WIDTH - 3 || z < 3 || z >= Chunk.DEPTH - 3;
+                        for (int y = 1; y < Chunk.HEIGHT; y++) {
+                            int blockId = chunk.getBlockId(x, y, z);
+                            if (blockId == leaves && edge) {
+                                edgeLeaves++;
+                            }
+                            // Solo il blocco più basso di ogni tronco
+                            if (blockId == wood && nearEdge && chunk.getBlockId(x, y - 1, z) != wood) {
+                                edgeTrunks++;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        assertTrue(edgeLeaves > 0, "nessuna foglia sulle colonne di bordo");
+        assertTrue(edgeTrunks > 0, "nessun tronco entro 3 blocchi dal bordo");
+    }
+
+    private static Map<ChunkPosition, byte[]> generateAll(List<ChunkPosition> order, boolean clearBuffer,
+            GenerationPipeline pipeline) {
+        Map<ChunkPosition, byte[]> encoded = new HashMap<>();
+        for (ChunkPosition position : order) {
+            if (clearBuffer) {
+                WorldGenerator.getFeatureBuffer().clear();
+            }
+            Chunk chunk = new Chunk(position.getX(), position.getZ());
+            if (pipeline != null) {
+                pipeline.generate(chunk).join();
+            } else {
+                chunk.generate();
+            }
+            encoded.put(position, ChunkCodec.encode(chunk));
+        }
+        return encoded;
+    }
+}
@@ -0,0 +1,62 @@
+package world.generation;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import world.chunks.Chunk;
+
+/*
+ * Generazione su un solo thread con il generatore del thread: Chunk.generate() completo
+ * (con -prof gc, gc.alloc.rate.norm sono i byte allocati per chunk) e il solo stadio SURFACE,
+ * in blocco con fillColumns() e cella per cella con setBlockId come riferimento.
+ * L'uguaglianza delle due scritture è in WorldGeneratorTest.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WorldGeneratorBenchmark {
+    private WorldGenerator generator;
+    private int[] heights;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        generator = WorldGenerator.forCurrentThread();
+        heights = generator.computeHeights(3, 3, new int[Chunk.WIDTH * Chunk.DEPTH]);
+    }
+
+    @Benchmark
+    public Chunk generate() {
+        next++;
+        Chunk chunk = new Chunk(next % 50, next / 50);
+        chunk.generate();
+        return chunk;
+    }
+
+    @Benchmark
+    public Chunk surfaceBulk() {
+        Chunk chunk = new Chunk(0, 0);
+        generator.fillColumns(chunk, heights);
+        return chunk;
+    }
+
+    @Benchmark
+    public Chunk surfaceCellByCell() {
+        Chunk chunk = new Chunk(0, 0);
+        WorldGeneratorTest.fillCellByCell(chunk, heights);
+        return chunk;
+    }
+}
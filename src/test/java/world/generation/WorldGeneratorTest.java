@@ -0,0 +1,112 @@
+package world.generation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import world.blocks.Block;
+import world.blocks.BlockRegistry;
+import world.chunks.Chunk;
+import world.chunks.Heightmap;
+
+/*
+ * Il terreno di un seme deve restare identico tra JVM e versioni: i salvataggi delta
+ * contengono solo le differenze dal terreno generato. Se l'hash cambia di proposito,
+ * va incrementato WorldGenerator.VERSION e aggiornato GOLDEN_HASH.
+ */
+class WorldGeneratorTest {
+    private static final long SEED = 0x5EEDL;
+    private static final long GOLDEN_HASH = -8991759902427239888L;
+    // Un blocco 4x4 attorno all'origine (alberi che attraversano i bordi) e qualche chunk lontano
+    private static final int[][] CHUNKS = {
+            {-2, -2}, {-1, -2}, {0, -2}, {1, -2},
+            {-2, -1}, {-1, -1}, {0, -1}, {1, -1},
+            {-2, 0}, {-1, 0}, {0, 0}, {1, 0},
+            {-2, 1}, {-1, 1}, {0, 1}, {1, 1},
+            {0, 37}, {-41, 0}, {1000, -1000}, {-123456, 654321}
+    };
+
+    @BeforeAll
+    static void setSeed() {
+        WorldGenerator.setWorldSeed(SEED);
+    }
+
+    @Test
+    void terrainMatchesGoldenHash() {
+        assertEquals(GOLDEN_HASH, hashChunks(false), "terreno cambiato: incrementare WorldGenerator.VERSION");
+    }
+
+    @Test
+    void terrainDoesNotDependOnGenerationOrder() {
+        assertEquals(hashChunks(false), hashChunks(true));
+    }
+
+    // Lo stadio SURFACE scrive per intervalli: stesse celle e heightmap della scrittura cella per cella
+    @Test
+    void bulkFillMatchesCellByCell() {
+        WorldGenerator generator = WorldGenerator.forCurrentThread();
+        for (int chunkX = -4; chunkX < 4; chunkX++) {
+            for (int chunkZ = -4; chunkZ < 4; chunkZ++) {
+                int[] heights = generator.computeHeights(chunkX, chunkZ, new int[Chunk.WIDTH * Chunk.DEPTH]);
+                Chunk bulk = new Chunk(chunkX, chunkZ);
+                generator.fillColumns(bulk, heights);
+                Chunk reference = new Chunk(chunkX, chunkZ);
+                fillCellByCell(reference, heights);
+                for (int x = 0; x < Chunk.WIDTH; x++) {
+                    for (int z = 0; z < Chunk.DEPTH; z++) {
+                        for (int y = 0; y < Chunk.HEIGHT; y++) {
+                            assertEquals(reference.getBlockId(x, y, z), bulk.getBlockId(x, y, z));
+                        }
+                        for (Heightmap.Type type : Heightmap.Type.values()) {
+                            assertEquals(reference.getHeightmap(type).getHeight(x, z), bulk.getHeightmap(type).getHeight(x, z));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // Stesse regole di fillColumns: pietra a y = 0, terra, erba in cima
+    static void fillCellByCell(Chunk chunk, int[] heights) {
+        int stone = BlockRegistry.getId(Block.BlockType.STONE);
+        int dirt = BlockRegistry.getId(Block.BlockType.DIRT);
+        int grass = BlockRegistry.getId(Block.BlockType.GRASS);
+        for (int x = 0; x < Chunk.WIDTH; x++) {
+            for (int z = 0; z < Chunk.DEPTH; z++) {
+                int height = Math.min(heights[z * Chunk.WIDTH + x], Chunk.HEIGHT);
+                for (int y = 0; y < height; y++) {
+                    chunk.setBlockId(x, y, z, y == 0 ? stone : y < height - 1 ? dirt : grass);
+                }
+            }
+        }
+    }
+
+    private static long hashChunks(boolean reversed) {
+        long[] hashes = new long[CHUNKS.length];
+        for (int n = 0; n < CHUNKS.length; n++) {
+            int i = reversed ? CHUNKS.length - 1 - n : n;
+            Chunk chunk = new Chunk(CHUNKS[i][0], CHUNKS[i][1]);
+            chunk.generate();
+            hashes[i] = hashBlocks(chunk);
+        }
+        long hash = 0xCBF29CE484222325L;
+        for (long chunkHash : hashes) {
+            hash = (hash ^ chunkHash) * 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    // FNV-1a sugli id dei blocchi in ordine (y, z, x)
+    private static long hashBlocks(Chunk chunk) {
+        long hash = 0xCBF29CE484222325L;
+        for (int y = 0; y < Chunk.HEIGHT; y++) {
+            for (int z = 0; z < Chunk.DEPTH; z++) {
+                for (int x = 0; x < Chunk.WIDTH; x++) {
+                    hash = (hash ^ chunk.getBlockId(x, y, z)) * 0x100000001B3L;
+                }
+            }
+        }
+        return hash;
+    }
+}
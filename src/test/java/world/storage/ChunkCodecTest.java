@@ -0,0 +1,84 @@
+package world.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import world.blocks.Block;
+import world.blocks.BlockRegistry;
+import world.chunks.Chunk;
+import world.chunks.ChunkSection;
+
+/*
+ * encode/decode restituiscono le stesse celle, con sezioni già compatte; i record con
+ * lunghezze o indici di palette fuori dai limiti vengono rifiutati.
+ */
+class ChunkCodecTest {
+    private static final int[] IDS = {
+            BlockRegistry.AIR_ID,
+            BlockRegistry.getId(Block.BlockType.STONE),
+            BlockRegistry.getId(Block.BlockType.DIRT),
+            BlockRegistry.getId(Block.BlockType.GRASS),
+            BlockRegistry.getId(Block.BlockType.WOOD),
+            BlockRegistry.getId(Block.BlockType.LEAVES),
+            BlockRegistry.getId(Block.BlockType.WATER)
+    };
+
+    @Test
+    void roundTrip() {
+        Random random = new Random(5);
+        for (int round = 0; round < 4; round++) {
+            Chunk chunk = new Chunk(round - 2, 7);
+            assertTrue(chunk.generate());
+            // Da poche modifiche sparse a rumore puro in alcune sezioni
+            int edits = round * 6000;
+            for (int i = 0; i < edits; i++) {
+                chunk.setBlockId(random.nextInt(16), random.nextInt(Chunk.HEIGHT), random.nextInt(16),
+                        IDS[random.nextInt(IDS.length)]);
+            }
+            ChunkSection[] decoded = ChunkCodec.decode(ByteBuffer.wrap(ChunkCodec.encode(chunk)));
+            for (int s = 0; s < Chunk.SECTION_COUNT; s++) {
+                ChunkSection expected = chunk.getSections()[s];
+                ChunkSection actual = decoded[s];
+                assertEquals(expected == null, actual == null, "sezione " + s);
+                if (expected == null) {
+                    continue;
+                }
+                assertEquals(expected.getNonAirCount(), actual.getNonAirCount());
+                for (int y = 0; y < ChunkSection.SIZE; y++) {
+                    for (int z = 0; z < ChunkSection.SIZE; z++) {
+                        for (int x = 0; x < ChunkSection.SIZE; x++) {
+                            assertEquals(expected.getBlockId(x, y, z), actual.getBlockId(x, y, z));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void rejectsCorruptSections() {
+        // Una sola sezione, palette di 2 id, coppie che escono dalla sezione o dalla palette
+        assertThrows(IllegalStateException.class, () -> ChunkCodec.decode(section(2, 1, 2, 4097, 0)));
+        assertThrows(IllegalStateException.class, () -> ChunkCodec.decode(section(2, 1, 2, 4000, 2)));
+        assertThrows(IllegalStateException.class, () -> ChunkCodec.decode(section(0)));
+    }
+
+    private static ByteBuffer section(int... varInts) {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        buffer.put((byte) ChunkCodec.VERSION).put((byte) 0).put((byte) 0).put((byte) 0).put((byte) 1);
+        for (int value : varInts) {
+            while ((value & ~0x7F) != 0) {
+                buffer.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+        return buffer.flip();
+    }
+}
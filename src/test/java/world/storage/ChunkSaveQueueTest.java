@@ -0,0 +1,106 @@
+package world.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import world.blocks.Block;
+import world.blocks.BlockRegistry;
+import world.chunks.Chunk;
+import world.chunks.ChunkSection;
+
+/*
+ * Istantanee copy-on-write e salvataggi falliti: un salvataggio non riuscito torna in coda
+ * e nessun checkpoint viene eseguito finché non riesce.
+ */
+class ChunkSaveQueueTest {
+    private static final int STONE = BlockRegistry.getId(Block.BlockType.STONE);
+    private static final int WOOD = BlockRegistry.getId(Block.BlockType.WOOD);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void snapshotIsCopiedOnceOnWrite() {
+        Chunk chunk = new Chunk(0, 0);
+        assertTrue(chunk.generate());
+        chunk.setBlockId(1, 2, 3, STONE);
+        assertTrue(chunk.isUnsaved());
+
+        ChunkSection[] snapshot = chunk.takeSaveSnapshot();
+        assertFalse(chunk.isUnsaved());
+        assertSame(snapshot[0], chunk.getSections()[0]);
+
+        chunk.setBlockId(1, 2, 3, WOOD);
+        ChunkSection copy = chunk.getSections()[0];
+        assertNotSame(snapshot[0], copy);
+        assertEquals(STONE, snapshot[0].getBlockId(1, 2, 3));
+        assertEquals(WOOD, chunk.getBlockId(1, 2, 3));
+        assertTrue(chunk.isUnsaved());
+
+        // Una sola copia per istantanea
+        chunk.setBlockId(4, 5, 6, WOOD);
+        assertSame(copy, chunk.getSections()[0]);
+    }
+
+    @Test
+    void failedSaveIsRetriedBeforeCheckpoint() {
+        FailingStore store = new FailingStore(directory);
+        store.failing.set(true);
+        ChunkSaveQueue queue = new ChunkSaveQueue(store, 1 << 20, 10_000);
+        Chunk chunk = new Chunk(3, -2);
+        assertTrue(chunk.generate());
+        for (int y = 0; y < 100; y++) {
+            chunk.setBlockId(7, y, 7, WOOD);
+            queue.markModified(chunk);
+        }
+        assertEquals(1, queue.getQueueDepth());
+        AtomicBoolean checkpointed = new AtomicBoolean();
+        queue.requestCheckpoint(() -> checkpointed.set(true));
+
+        assertFalse(queue.flush());
+        assertFalse(checkpointed.get());
+        assertEquals(1, queue.getQueueDepth());
+        assertTrue(queue.getPendingBytes() > 0);
+
+        store.failing.set(false);
+        assertTrue(queue.close());
+        assertTrue(checkpointed.get());
+        assertEquals(0, queue.getPendingBytes());
+        store.close();
+
+        RegionStore reopened = new RegionStore(directory);
+        Chunk loaded = new Chunk(3, -2);
+        assertTrue(reopened.load(loaded));
+        reopened.close();
+        for (int y = 0; y < 100; y++) {
+            assertEquals(WOOD, loaded.getBlockId(7, y, 7));
+        }
+    }
+
+    private static class FailingStore extends RegionStore {
+        final AtomicBoolean failing = new AtomicBoolean();
+
+        FailingStore(Path directory) {
+            super(directory);
+        }
+
+        @Override
+        public int save(int chunkX, int chunkZ, ChunkSection[] sections) {
+            return failing.get() ? -1 : super.save(chunkX, chunkZ, sections);
+        }
+
+        @Override
+        public int save(int chunkX, int chunkZ, byte[] encoded) {
+            return failing.get() ? -1 : super.save(chunkX, chunkZ, encoded);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package world.storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/*
+ * Riscritture copy-on-write: ogni record si rilegge identico, anche dopo la riapertura, il file
+ * non cresce senza limite e una lettura in corso non vede i suoi settori riusati.
+ */
+class RegionFileTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void randomRewritesStayIntact() throws IOException {
+        Path path = directory.resolve("r.0.0.region");
+        Random random = new Random(1);
+        byte[][] current = new byte[RegionFile.SIZE * RegionFile.SIZE][];
+        RegionFile region = new RegionFile(path);
+        for (int i = 0; i < 20_000; i++) {
+            int slot = random.nextInt(current.length);
+            byte[] data = new byte[1 + random.nextInt(3000)];
+            random.nextBytes(data);
+            region.write(slot % RegionFile.SIZE, slot / RegionFile.SIZE, data);
+            current[slot] = data;
+            if (i % 5000 == 0) {
+                region.flush();
+            }
+        }
+        checkRecords(region, current);
+        region.close();
+
+        long liveBytes = 0;
+        for (byte[] data : current) {
+            if (data != null) {
+                liveBytes += (data.length + 255) / 256 * 256;
+            }
+        }
+        // Header, settori vivi e al più le copie in attesa di sincronizzazione con la frammentazione
+        assertTrue(Files.size(path) < 8192 + 2 * liveBytes + (2 << 20), "file di " + Files.size(path) + " byte");
+
+        region = new RegionFile(path);
+        checkRecords(region, current);
+        region.close();
+    }
+
+    @Test
+    void readerKeepsItsSectors() throws IOException {
+        RegionFile region = new RegionFile(directory.resolve("r.0.0.region"));
+        byte[] first = filled(1000, (byte) 1);
+        region.write(0, 0, first);
+        region.flush();
+        byte[] seen = region.read(0, 0, data -> {
+            try {
+                // Il record letto viene sostituito e i settori liberati vengono chiesti da altre scritture
+                region.write(0, 0, filled(1000, (byte) 2));
+                region.flush();
+                for (int i = 1; i < 64; i++) {
+                    region.write(i % RegionFile.SIZE, i / RegionFile.SIZE, filled(1000, (byte) 3));
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            return bytes(data);
+        });
+        assertArrayEquals(first, seen);
+        assertArrayEquals(filled(1000, (byte) 2), region.read(0, 0, RegionFileTest::bytes));
+        assertNull(region.read(5, 5, data -> data));
+        region.close();
+    }
+
+    private static void checkRecords(RegionFile region, byte[][] expected) throws IOException {
+        for (int slot = 0; slot < expected.length; slot++) {
+            if (expected[slot] != null) {
+                assertArrayEquals(expected[slot], region.read(slot % RegionFile.SIZE, slot / RegionFile.SIZE, RegionFileTest::bytes),
+                        "record nella posizione " + slot);
+            }
+        }
+    }
+
+    private static byte[] bytes(ByteBuffer data) {
+        byte[] bytes = new byte[data.remaining()];
+        data.get(bytes);
+        return bytes;
+    }
+
+    private static byte[] filled(int length, byte value) {
+        byte[] data = new byte[length];
+        Arrays.fill(data, value);
+        return data;
+    }
+}
@@ -0,0 +1,105 @@
+package world.storage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import world.blocks.Block;
+import world.blocks.BlockRegistry;
+import world.chunks.Chunk;
+
+/*
+ * 1024 chunk con 10 modifiche ciascuno su 4 regioni, in una directory temporanea:
+ * caricamento con restore contro generazione degli stessi chunk, e salvataggio, per ogni modo.
+ * L'integrità dei record dopo le riscritture è in RegionFileTest.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegionStoreBenchmark {
+    private static final int CHUNKS = 1024;
+
+    @Param({ "FULL", "DELTA" })
+    public RegionStore.StorageMode mode;
+
+    private Path directory;
+    private Chunk[] chunks;
+    private RegionStore store;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("regions");
+        Random random = new Random(3);
+        int stone = BlockRegistry.getId(Block.BlockType.STONE);
+        chunks = new Chunk[CHUNKS];
+        store = new RegionStore(directory, mode);
+        for (int i = 0; i < CHUNKS; i++) {
+            chunks[i] = new Chunk(i % 32 - 16, i / 32 - 16);
+            chunks[i].generate();
+            for (int edit = 0; edit < 10; edit++) {
+                chunks[i].setBlockId(random.nextInt(16), random.nextInt(120), random.nextInt(16), stone);
+            }
+            store.save(chunks[i]);
+        }
+        store.flush();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        store.close();
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private Chunk nextChunk() {
+        next = (next + 1) % CHUNKS;
+        return chunks[next];
+    }
+
+    @Benchmark
+    public Chunk load() {
+        Chunk saved = nextChunk();
+        Chunk chunk = new Chunk(saved.getChunkX(), saved.getChunkZ());
+        if (!store.load(chunk)) {
+            throw new IllegalStateException("Chunk non trovato: " + saved.getChunkX() + "," + saved.getChunkZ());
+        }
+        return chunk;
+    }
+
+    @Benchmark
+    public Chunk generate() {
+        Chunk saved = nextChunk();
+        Chunk chunk = new Chunk(saved.getChunkX(), saved.getChunkZ());
+        chunk.generate();
+        return chunk;
+    }
+
+    @Benchmark
+    public int save() {
+        return store.save(nextChunk());
+    }
+}